@@ -0,0 +1,88 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.household;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.benchmark.ScenarioGenerator;
+import org.simnation.model.Domain;
+import org.simplesim.core.scheduling.Time;
+
+/**
+ * Benchmarks the activation of households.
+ * <p>
+ * {@code activate} runs one household at the time of its next event, mostly processing need activation events and
+ * sending demands. Afterwards, all demands are handed back to the household as if the market had not matched them,
+ * so the order cycle continues without trading. {@code planBudget} measures the monthly budget planning on its own,
+ * calling it directly so no further planning events are enqueued. The households are rebuilt in a new domain for each
+ * iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class HouseholdBenchmark {
+
+	private static final int POPULATION=1024; // power of two
+
+	@Param({ "4", "11" })
+	private int needs;
+
+	@Param({ "false", "true" })
+	private boolean columnar;
+
+	private final Household[] households=new Household[POPULATION];
+	private int next=0;
+
+	@Setup(Level.Trial)
+	public void setupModel() {
+		final Random random=new Random(42);
+		ScenarioGenerator.initNeeds(needs,random);
+	}
+
+	@Setup(Level.Iteration)
+	public void setupHouseholds() {
+		final Random random=new Random(42);
+		// a new root per iteration, so households of previous iterations are released
+		final Domain domain=ScenarioGenerator.createDomain(ScenarioGenerator.createRoot(),"region");
+		final HouseholdPopulation population=columnar ? new HouseholdPopulation(POPULATION) : null;
+		domain.setHouseholdPopulation(population);
+		int index=0;
+		for (HouseholdDTO dto : ScenarioGenerator.createHouseholds(POPULATION,random)) {
+			households[index]=new Household(dto,population);
+			domain.addEntity(households[index++]);
+		}
+	}
+
+	@Benchmark
+	public Time activate() {
+		final Household household=households[next++&(POPULATION-1)];
+		final Time result=household.doEvent(household.getTimeOfNextEvent());
+		while (household.getOutport().hasMessages()) household.getInport().write(household.getOutport().poll());
+		return result;
+	}
+
+	@Benchmark
+	public void planBudget() {
+		households[next++&(POPULATION-1)].planBudget(Time.ZERO);
+	}
+
+}
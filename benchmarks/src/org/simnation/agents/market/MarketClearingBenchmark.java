@@ -0,0 +1,99 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Supply;
+import org.simnation.benchmark.ScenarioGenerator;
+import org.simnation.context.technology.Good;
+
+/**
+ * Benchmarks the clearing of one market segment for all market strategies at varying book sizes.
+ * <p>
+ * The measured operation covers the arrival of all orders at the strategy and the clearing itself, since strategies
+ * differ in where they spend their effort. Trading is done by a {@link GoodsMarketB2C}.
+ * <p>
+ * Clearing changes the orders, so each book can only be cleared once. A pool of {@value #BOOKS} fresh books is
+ * generated before each iteration outside of the measurement, and each invocation clears all books of the pool. Thus,
+ * even small books are timed in batches long enough for the timer, and the score is the time per book.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=10)
+@Measurement(iterations=20)
+@Fork(1)
+@State(Scope.Thread)
+public class MarketClearingBenchmark {
+
+	private static final int BOOKS=10; // books cleared per invocation
+
+	/** number of demands and of supplies in the book */
+	@Param({ "100", "1000", "10000", "100000" })
+	private int size;
+
+	@Param({ "DOUBLE_AUCTION", "ORDER_BOOK", "CALL_AUCTION" })
+	private MarketStrategyFactory.Type type;
+
+	private final Good good=ScenarioGenerator.createGood("good");
+	private final Random random=new Random(42);
+	private GoodsMarketB2C market;
+	private MarketStrategy<Good> strategy;
+	@SuppressWarnings("unchecked")
+	private final List<Demand<Good>>[] demand=new List[BOOKS];
+	@SuppressWarnings("unchecked")
+	private final List<Supply<Good>>[] supply=new List[BOOKS];
+
+	@Setup(Level.Trial)
+	public void setupMarket() {
+		MarketStrategyFactory.setType(type);
+		market=new GoodsMarketB2C(Collections.singleton(good));
+		strategy=MarketStrategyFactory.create();
+	}
+
+	@Setup(Level.Iteration)
+	public void setupBooks() {
+		for (int book=0; book<BOOKS; book++) {
+			demand[book]=null; // release the books of the previous iteration first
+			supply[book]=null;
+		}
+		for (int book=0; book<BOOKS; book++) {
+			demand[book]=ScenarioGenerator.createDemands(good,size,random);
+			supply[book]=ScenarioGenerator.createSupplies(good,size,random);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BOOKS)
+	public long doMarketClearing() {
+		long volume=0;
+		for (int book=0; book<BOOKS; book++) {
+			for (Demand<Good> item : demand[book]) strategy.addDemand(item);
+			for (Supply<Good> item : supply[book]) strategy.addSupply(item);
+			final PriceVolumeDataPoint pvd=strategy.doMarketClearing(market,demand[book],supply[book]);
+			if (pvd!=null) volume+=pvd.volume();
+		}
+		return volume;
+	}
+
+}
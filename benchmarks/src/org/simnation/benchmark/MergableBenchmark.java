@@ -0,0 +1,72 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.agents.business.Money;
+import org.simnation.common.Batch;
+
+/**
+ * Benchmarks the arithmetic of {@link Money} and {@link Batch}.
+ * <p>
+ * Each operation splits an amount and gives it back, so the state stays the same over all invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class MergableBenchmark {
+
+	private static final long AMOUNT=17;
+
+	private Money money, otherMoney;
+	private Batch batch, otherBatch;
+
+	@Setup
+	public void setup() {
+		money=new Money(1_000_000_000L);
+		otherMoney=new Money(1_000_000_000L);
+		batch=new Batch(ScenarioGenerator.createGood("good"),1_000_000_000L,100_000_000_000L,0.5f);
+		otherBatch=new Batch(batch.getType(),1_000_000_000L,100_000_000_000L,0.5f);
+	}
+
+	@Benchmark
+	public long moneySplitMerge() {
+		return money.merge(money.split(AMOUNT));
+	}
+
+	@Benchmark
+	public long moneyTransfer() {
+		otherMoney.transfer(money,AMOUNT);
+		money.transfer(otherMoney,AMOUNT);
+		return money.getValue();
+	}
+
+	@Benchmark
+	public long batchSplitMerge() {
+		return batch.merge(batch.split(AMOUNT));
+	}
+
+	@Benchmark
+	public long batchTransfer() {
+		otherBatch.transfer(batch,AMOUNT,AMOUNT*100);
+		return batch.transfer(otherBatch,AMOUNT,AMOUNT*100);
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.util.FastMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.agents.household.GeometricMeanPricing;
+import org.simnation.agents.household.PricingRule;
+
+/**
+ * Benchmarks the demand pricing of households: the previous calculation with {@code FastMath.pow(x,0.25)} and four
+ * factors against the {@link GeometricMeanPricing} rule with a cached constant factor.
+ * <p>
+ * Each invocation prices a fixed set of need activations with random factors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+	private static final int ACTIVATIONS=1024;
+
+	private final PricingRule rule=new GeometricMeanPricing();
+	private double[] expectedPrice, urgency, security, growth, extraversion, constant;
+
+	@Setup
+	public void setup() {
+		final Random random=new Random(42);
+		expectedPrice=new double[ACTIVATIONS];
+		urgency=new double[ACTIVATIONS];
+		security=new double[ACTIVATIONS];
+		growth=new double[ACTIVATIONS];
+		extraversion=new double[ACTIVATIONS];
+		constant=new double[ACTIVATIONS];
+		for (int index=0; index<ACTIVATIONS; index++) {
+			expectedPrice[index]=ScenarioGenerator.PRICE_LEVEL+ScenarioGenerator.PRICE_SPREAD*random.nextGaussian();
+			urgency[index]=random.nextDouble()*2;
+			security[index]=0.5+random.nextDouble();
+			growth[index]=0.98+0.04*random.nextDouble();
+			extraversion[index]=0.5+random.nextDouble(); // [0.5;1.5]
+			constant[index]=growth[index]*extraversion[index];
+		}
+	}
+
+	@Benchmark
+	public double fastMathPow() {
+		double sum=0;
+		for (int index=0; index<ACTIVATIONS; index++) sum+=expectedPrice[index]
+				*FastMath.pow(urgency[index]*security[index]*growth[index]*extraversion[index],0.25);
+		return sum;
+	}
+
+	@Benchmark
+	public double mathPow() {
+		double sum=0;
+		for (int index=0; index<ACTIVATIONS; index++) sum+=expectedPrice[index]
+				*Math.pow(urgency[index]*security[index]*growth[index]*extraversion[index],0.25);
+		return sum;
+	}
+
+	@Benchmark
+	public double pricingRule() {
+		double sum=0;
+		for (int index=0; index<ACTIVATIONS; index++)
+			sum+=rule.calcPrice(expectedPrice[index],urgency[index],security[index],constant[index]);
+		return sum;
+	}
+
+}
@@ -0,0 +1,193 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Money;
+import org.simnation.agents.business.Supply;
+import org.simnation.agents.household.Household;
+import org.simnation.agents.household.HouseholdDTO;
+import org.simnation.agents.household.Need;
+import org.simnation.agents.household.Need.URGENCY;
+import org.simnation.agents.market.GoodsMarketB2C;
+import org.simnation.common.Batch;
+import org.simnation.context.geography.Region;
+import org.simnation.context.technology.Good;
+import org.simnation.model.Domain;
+import org.simnation.model.Model;
+import org.simplesim.model.RoutingDomain;
+
+/**
+ * Generates reproducible scenarios for the benchmarks without a database.
+ * <p>
+ * All random values are drawn from the given random generator, so a fixed seed always yields the same scenario.
+ */
+public final class ScenarioGenerator {
+
+	/** center of the generated prices in money units per good unit */
+	public static final double PRICE_LEVEL=100;
+	/** spread of the generated prices around the price level */
+	public static final double PRICE_SPREAD=20;
+	/** maximum quantity of a generated order */
+	public static final int MAX_QUANTITY=100;
+
+	/** Root of the domains of a benchmark, replacing the model singleton as parent */
+	private static final class BenchmarkRoot extends RoutingDomain {
+
+		BenchmarkRoot() {
+			setAsRootDomain();
+		}
+
+		@Override
+		public String getName() { return "BenchmarkRoot"; }
+
+	}
+
+	private ScenarioGenerator() {}
+
+	public static Good createGood(String name) {
+		final Good good=new Good();
+		good.setName(name);
+		good.setUnit("U");
+		good.setService(false);
+		return good;
+	}
+
+	/**
+	 * Creates demands with normally distributed prices and sufficient money to pay them.
+	 *
+	 * @param good   the good demanded
+	 * @param count  number of demands
+	 * @param random source of randomness
+	 * @return list of new demands
+	 */
+	public static List<Demand<Good>> createDemands(Good good, int count, Random random) {
+		final List<Demand<Good>> result=new ArrayList<>(count);
+		for (int index=0; index<count; index++) {
+			final int quantity=1+random.nextInt(MAX_QUANTITY);
+			final double price=nextPrice(random);
+			final Money money=new Money((long) Math.ceil(quantity*price));
+			result.add(new Demand<>(new int[0],good,quantity,price,0,money));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates supplies with normally distributed prices, each offering a batch valued at its price.
+	 *
+	 * @param good   the good supplied
+	 * @param count  number of supplies
+	 * @param random source of randomness
+	 * @return list of new supplies
+	 */
+	public static List<Supply<Good>> createSupplies(Good good, int count, Random random) {
+		final List<Supply<Good>> result=new ArrayList<>(count);
+		for (int index=0; index<count; index++) {
+			final int quantity=1+random.nextInt(MAX_QUANTITY);
+			final double price=nextPrice(random);
+			final Batch batch=new Batch(good,quantity,(long) (quantity*price),0);
+			result.add(new Supply<>(new int[0],batch,price));
+		}
+		return result;
+	}
+
+	/**
+	 * Sets up the need system of the model singleton, each need with a good of its own as satisfier.
+	 * <p>
+	 * Replaces all needs and consumables defined before.
+	 *
+	 * @param count  number of needs, less than {@link Household#MAX_NEEDS}
+	 * @param random source of randomness
+	 * @return the new needs
+	 */
+	public static List<Need> initNeeds(int count, Random random) {
+		final Model model=Model.getInstance();
+		model.getNeeds().clear();
+		model.getConsumables().clear();
+		final List<Need> result=new ArrayList<>(count);
+		for (int index=0; index<count; index++) {
+			final Need need=new Need();
+			need.setName("need_"+index);
+			need.setSatisfier(createGood("good_"+index));
+			need.setUrgency(URGENCY.values()[index%URGENCY.values().length]);
+			need.setType(Need.TYPE.LINEAR);
+			need.setActivationDays(1+random.nextInt(7));
+			need.setFrustrationDays(1+random.nextInt(7));
+			need.setDailyConsumptionAdult(1+random.nextInt(5));
+			need.setDailyConsumptionChild(1+random.nextInt(3));
+			result.add(need);
+			model.getNeeds().add(need);
+			model.getConsumables().add(need.getSatisfier());
+		}
+		Household.initNeedMap(model.getNeeds());
+		return result;
+	}
+
+	/**
+	 * Creates a new root for the domains of a benchmark.
+	 * <p>
+	 * Domains are not added to the model singleton, so the domains of previous iterations or trials do not pile up
+	 * there. They are released together with their root.
+	 *
+	 * @return a new, empty root domain
+	 */
+	public static RoutingDomain createRoot() {
+		return new BenchmarkRoot();
+	}
+
+	/**
+	 * Creates a domain with a goods market for all consumables and adds it to the given root.
+	 * <p>
+	 * The need system has to be set up before.
+	 *
+	 * @param root the root domain, see {@link #createRoot()}
+	 * @param name name of the domain's region
+	 * @return the new domain
+	 */
+	public static Domain createDomain(RoutingDomain root, String name) {
+		final Region region=new Region();
+		region.setName(name);
+		final GoodsMarketB2C market=new GoodsMarketB2C(Model.getInstance().getConsumables());
+		final Domain domain=new Domain(region,market);
+		root.addEntity(domain);
+		domain.addEntity(market);
+		return domain;
+	}
+
+	/**
+	 * Creates the initial states of a household population.
+	 *
+	 * @param count  number of households
+	 * @param random source of randomness
+	 * @return list of household states
+	 */
+	public static List<HouseholdDTO> createHouseholds(int count, Random random) {
+		final int needs=Model.getInstance().getNeeds().size();
+		final List<HouseholdDTO> result=new ArrayList<>(count);
+		for (int index=0; index<count; index++) {
+			final HouseholdDTO dto=new HouseholdDTO();
+			dto.setIndex(index);
+			dto.setAdults(1+random.nextInt(2));
+			dto.setChildren(random.nextInt(4));
+			dto.setCash(100_000+random.nextInt(400_000));
+			dto.setExtraversion(0.5f+random.nextFloat()); // [0.5;1.5]
+			final float[] level=new float[needs];
+			for (int need=0; need<needs; need++) level[need]=random.nextFloat();
+			dto.setNeedLevel(level);
+			result.add(dto);
+		}
+		return result;
+	}
+
+	private static double nextPrice(Random random) {
+		return Math.max(1,Math.round((PRICE_LEVEL+PRICE_SPREAD*random.nextGaussian())*100)/100.0d); // full cents
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.common.StatisticsBank;
+
+/**
+ * Benchmarks the bulk update of a {@link StatisticsBank} against updating each series on its own.
+ * <p>
+ * The bulk update runs vectorized (JVM with {@code jdk.incubator.vector}) and with the plain loop (vectorization
+ * switched off), each in a fork of its own. The vectorized run needs the simulator to be installed with the Maven
+ * profile {@code vector}, otherwise it falls back to the plain loop as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBankBenchmark {
+
+	private static final int ROUNDS=16; // power of two
+
+	@Param({ "16", "256", "4096" })
+	private int series;
+
+	private StatisticsBank bank;
+	private double[][] values;
+	private int round=0;
+
+	@Setup
+	public void setup() {
+		final Random random=new Random(42);
+		bank=new StatisticsBank(series);
+		values=new double[ROUNDS][series];
+		for (double[] row : values) for (int pos=0; pos<series; pos++)
+			row[pos]=ScenarioGenerator.PRICE_LEVEL+ScenarioGenerator.PRICE_SPREAD*random.nextGaussian();
+	}
+
+	@Benchmark
+	@Fork(value=1,jvmArgsAppend={ "--add-modules", "jdk.incubator.vector" })
+	public double bulkVector() {
+		bank.update(values[round++&(ROUNDS-1)]);
+		return bank.getAVG(0);
+	}
+
+	@Benchmark
+	@Fork(value=1,jvmArgsAppend="-Dsimnation.vector=false")
+	public double bulkScalar() {
+		bank.update(values[round++&(ROUNDS-1)]);
+		return bank.getAVG(0);
+	}
+
+	@Benchmark
+	public double single() {
+		final double[] row=values[round++&(ROUNDS-1)];
+		for (int pos=0; pos<series; pos++) bank.update(pos,row[pos]);
+		return bank.getAVG(0);
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simnation.common.Statistics;
+
+/**
+ * Benchmarks the online update of {@link Statistics} with a time series of normally distributed prices.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatisticsBenchmark {
+
+	private static final int SERIES_LENGTH=1024; // power of two
+
+	private final Statistics statistics=new Statistics(ScenarioGenerator.PRICE_LEVEL);
+	private final double[] series=new double[SERIES_LENGTH];
+	private int index=0;
+
+	@Setup
+	public void setup() {
+		final Random random=new Random(42);
+		for (int pos=0; pos<SERIES_LENGTH; pos++)
+			series[pos]=ScenarioGenerator.PRICE_LEVEL+ScenarioGenerator.PRICE_SPREAD*random.nextGaussian();
+	}
+
+	@Benchmark
+	public double update() {
+		statistics.update(series[index++&(SERIES_LENGTH-1)]);
+		return statistics.getAVG();
+	}
+
+}
@@ -0,0 +1,11 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+/**
+ * JMH benchmarks of the simulator's hot paths together with generators for reproducible scenarios.
+ * <p>
+ * Benchmarks of package-private functionality reside in the package of the code under test.
+ */
+package org.simnation.benchmark;
@@ -0,0 +1,43 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.common;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Bulk update of a {@link StatisticsBank} with the JDK's Vector API.
+ * <p>
+ * Only compiled with the Maven profile {@code vector} and only loaded by {@link StatisticsBank} if the module
+ * {@code jdk.incubator.vector} is available. Uses the same
+ * operations in the same order as the scalar update, so both yield identical results. Series with a {@code NaN} value
+ * are masked out, the tail of the arrays is done by the scalar loop.
+ */
+final class VectorStatisticsKernel implements StatisticsBank.Kernel {
+
+	private static final VectorSpecies<Double> SPECIES=DoubleVector.SPECIES_PREFERRED;
+
+	@Override
+	public void update(double[] average, double[] variance, double[] lastValue, double[] values, int length) {
+		final int bound=SPECIES.loopBound(length);
+		int index=0;
+		for (; index<bound; index+=SPECIES.length()) {
+			final DoubleVector value=DoubleVector.fromArray(SPECIES,values,index);
+			final VectorMask<Double> valid=value.test(VectorOperators.IS_NAN).not();
+			final DoubleVector avg=DoubleVector.fromArray(SPECIES,average,index);
+			final DoubleVector diff=value.sub(avg);
+			final DoubleVector incr=diff.mul(StatisticsBank.ALPHA);
+			avg.add(incr).intoArray(average,index,valid);
+			DoubleVector.fromArray(SPECIES,variance,index).add(diff.mul(incr)).mul(StatisticsBank.BETA)
+					.intoArray(variance,index,valid);
+			value.intoArray(lastValue,index,valid);
+		}
+		StatisticsBank.update(average,variance,lastValue,values,index,length);
+	}
+
+}
@@ -5,9 +5,16 @@
  */
 package org.simnation.agents;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.simnation.model.Domain;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.simulator.AgentProfiler;
+import org.simnation.simulator.EventQueueFactory;
 import org.simplesim.core.messaging.RoutingMessage;
-import org.simplesim.core.scheduling.HeapEventQueue;
+import org.simplesim.core.scheduling.EventQueue;
 import org.simplesim.core.scheduling.Time;
 import org.simplesim.model.RoutingAgent;
 import org.simplesim.model.State;
@@ -44,18 +51,53 @@ public abstract class AbstractBasicAgent<S extends State, E extends Enum<E>> ext
 	}
 
 	public AbstractBasicAgent(S state) {
-		super(new HeapEventQueue<>(),state);
+		super(EventQueueFactory.createAgentQueue(),state);
 	}
 
 	@Override
 	public Time doEvent(Time time) {
+		final AgentProfiler.Recorder recorder=AgentProfiler.getRecorder();
+		if (recorder!=null) return doProfiledEvent(time,recorder);
 		// process messages
-		while (getInport().hasMessages()) handleMessage(getInport().poll());
+		handleMessages();
 		// process events
 		while (getEventQueue().getMin().equals(time)) handleEvent(getEventQueue().dequeue(),time);
 		return getTimeOfNextEvent();
 	}
 
+	/**
+	 * Does the same as {@link #doEvent(Time)}, but counts messages and measures the time of the activation, the
+	 * message handling and each event.
+	 */
+	private Time doProfiledEvent(Time time, AgentProfiler.Recorder recorder) {
+		recorder.activate(getClass());
+		try {
+			while (getInport().hasMessages()) {
+				handleMessage(getInport().poll());
+				recorder.messageHandled();
+			}
+			long begin=recorder.messagesHandled();
+			while (getEventQueue().getMin().equals(time)) {
+				final E event=getEventQueue().dequeue();
+				handleEvent(event,time);
+				begin=recorder.eventHandled(event,begin);
+			}
+			return getTimeOfNextEvent();
+		} finally {
+			recorder.deactivate();
+		}
+	}
+
+	/**
+	 * Handles all messages waiting at the inport.
+	 * <p>
+	 * This is done first on each activation. Calling it in between activations does not change the agent's behavior,
+	 * as long as message handling does not depend on the time.
+	 */
+	public void handleMessages() {
+		while (getInport().hasMessages()) handleMessage(getInport().poll());
+	}
+
 	/**
 	 * Handles the content of a due message.
 	 * <p>
@@ -85,6 +127,8 @@ public abstract class AbstractBasicAgent<S extends State, E extends Enum<E>> ext
 	 * @param msg the message
 	 */
 	protected final void sendMessage(RoutingMessage msg) {
+		final AgentProfiler.Recorder recorder=AgentProfiler.getRecorder();
+		if (recorder!=null) recorder.messageSent();
 		getOutport().write(msg);
 	}
 
@@ -106,6 +150,44 @@ public abstract class AbstractBasicAgent<S extends State, E extends Enum<E>> ext
 
 	public Domain getDomain() { return (Domain) getParent(); }
 
+	/**
+	 * Writes all pending events of the agent's event queue to a snapshot, leaving the queue unchanged.
+	 *
+	 * @param out the snapshot
+	 */
+	protected void writeEvents(SnapshotWriter out) {
+		final EventQueue<E> queue=getEventQueue();
+		final List<E> events=new ArrayList<>(queue.size());
+		final List<Time> times=new ArrayList<>(queue.size());
+		while (!queue.isEmpty()) {
+			final Time time=queue.getMin();
+			for (E event : queue.dequeueAll()) {
+				events.add(event);
+				times.add(time);
+			}
+		}
+		out.putInt(events.size());
+		for (int index=0; index<events.size(); index++) {
+			out.putInt(events.get(index).ordinal());
+			out.putLong(times.get(index).getTicks());
+			queue.enqueue(events.get(index),times.get(index));
+		}
+	}
+
+	/**
+	 * Replaces all events of the agent's event queue by the events read from a snapshot.
+	 *
+	 * @param in     the snapshot
+	 * @param values all constants of the event type
+	 */
+	protected void readEvents(SnapshotReader in, E[] values) {
+		getEventQueue().clear();
+		for (int count=in.getInt(); count>0; count--) {
+			final E event=values[in.getInt()];
+			enqueueEvent(event,new Time(in.getLong()));
+		}
+	}
+
 	/**
 	 * Returns the index of this agent's domain.
 	 *
@@ -0,0 +1,141 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Logging facility for the hot paths of agents, based on binary event records.
+ * <p>
+ * The log level is read once from the system property {@code simnation.log} ({@code error}, {@code info},
+ * {@code debug} or {@code trace}, off if not set) and kept in a {@code static final} field. Thus, each guard
+ * {@code if (AgentLog.isEnabled(kind))} is a constant and the JIT compiler removes the guarded code completely if
+ * logging is off.
+ * <p>
+ * If logging is on, a record only stores its kind, the agent, one subject (e.g. the good) and a few primitive values
+ * in a ring buffer of the recording thread. No string is built while simulating. Records are formatted lazily by
+ * {@link #dump(Appendable)}, which lists the last records of each thread (capacity per thread set by the system property
+ * {@code simnation.log.capacity}, default 65536).
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * if (AgentLog.isEnabled(Kind.TRADE)) AgentLog.record(Kind.TRADE,this,good,amount,quantity,cost,price);
+ * </pre>
+ */
+public final class AgentLog {
+
+	public enum Level {
+		ERROR, INFO, DEBUG, TRACE
+	}
+
+	/**
+	 * Kinds of records with their level and format. Format arguments are: agent name, subject, three longs, one double.
+	 */
+	public enum Kind {
+		DEMAND_SENT(Level.TRACE,"%s sent demand for %s: quantity=%d, cash=%d, max price=%6$.2f"),
+		SEGMENT_CLEARED(Level.DEBUG,"%s cleared %s: demands=%d, supplies=%d, volume=%d, price=%.2f"),
+		TRADE(Level.TRACE,"%s traded %s: demand=%d, affordable=%d, cost=%d, price=%.2f"),
+		SUPPLY_SENT(Level.DEBUG,"%s sent supply of %s to market: quantity=%d, price=%6$.2f"),
+		SUPPLY_RETURNED(Level.DEBUG,"%s received returned supply of %s: sold=%d, revenue=%d, money=%d");
+
+		private final Level level;
+		private final String format;
+
+		Kind(Level lvl, String fmt) {
+			level=lvl;
+			format=fmt;
+		}
+
+		public Level getLevel() { return level; }
+	}
+
+	/** Ring buffer of the records of one thread, kept in primitive columns */
+	private static final class Ring {
+		final String thread=Thread.currentThread().getName();
+		final Kind[] kind=new Kind[CAPACITY];
+		final Object[] agent=new Object[CAPACITY];
+		final Object[] subject=new Object[CAPACITY];
+		final long[] a=new long[CAPACITY], b=new long[CAPACITY], c=new long[CAPACITY];
+		final double[] x=new double[CAPACITY];
+		long count=0; // total number of records written
+	}
+
+	/** the log level's ordinal, negative if logging is off */
+	private static final int LEVEL=parseLevel(System.getProperty("simnation.log"));
+	private static final int CAPACITY=Integer.highestOneBit(Math.max(1,Integer.getInteger("simnation.log.capacity",1<<16)));
+
+	/** {@code true} if logging is on at any level */
+	public static final boolean ENABLED=LEVEL>=0;
+
+	private static final Queue<Ring> RINGS=new ConcurrentLinkedQueue<>();
+	private static final ThreadLocal<Ring> RING=ThreadLocal.withInitial(() -> {
+		final Ring ring=new Ring();
+		RINGS.add(ring);
+		return ring;
+	});
+
+	private AgentLog() {}
+
+	public static boolean isEnabled(Level level) { return level.ordinal()<=LEVEL; }
+
+	public static boolean isEnabled(Kind kind) { return kind.level.ordinal()<=LEVEL; }
+
+	/**
+	 * Records an event. Has to be guarded by {@link #isEnabled(Kind)}.
+	 *
+	 * @param kind    kind of the record
+	 * @param agent   the recording agent
+	 * @param subject the subject of the record, e.g. the good
+	 * @param a       first value
+	 * @param b       second value
+	 * @param c       third value
+	 * @param x       floating point value
+	 */
+	public static void record(Kind kind, AbstractBasicAgent<?, ?> agent, Object subject, long a, long b, long c,
+			double x) {
+		final Ring ring=RING.get();
+		final int index=(int) (ring.count++&(CAPACITY-1));
+		ring.kind[index]=kind;
+		ring.agent[index]=agent;
+		ring.subject[index]=subject;
+		ring.a[index]=a;
+		ring.b[index]=b;
+		ring.c[index]=c;
+		ring.x[index]=x;
+	}
+
+	/**
+	 * Formats the records still kept in the ring buffers, oldest first per thread.
+	 * <p>
+	 * Has to be called while no records are written, e.g. after the simulation run.
+	 *
+	 * @param out destination of the formatted records
+	 * @throws IOException if writing fails
+	 */
+	public static void dump(Appendable out) throws IOException {
+		for (Ring ring : RINGS) {
+			final long first=Math.max(0,ring.count-CAPACITY);
+			out.append("Thread ").append(ring.thread).append(": ").append(Long.toString(ring.count-first))
+					.append(" of ").append(Long.toString(ring.count)).append(" records\n");
+			for (long count=first; count<ring.count; count++) {
+				final int index=(int) (count&(CAPACITY-1));
+				final Object agent=ring.agent[index];
+				final String name=agent instanceof AbstractBasicAgent<?, ?> basic ? basic.getFullName() : String.valueOf(agent);
+				out.append('\t').append(String.format(ring.kind[index].format,name,ring.subject[index],ring.a[index],
+						ring.b[index],ring.c[index],ring.x[index])).append('\n');
+			}
+		}
+	}
+
+	private static int parseLevel(String value) {
+		if (value==null||value.isBlank()) return -1;
+		return Level.valueOf(value.trim().toUpperCase()).ordinal();
+	}
+
+}
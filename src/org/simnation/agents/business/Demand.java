@@ -7,13 +7,22 @@ package org.simnation.agents.business;
 
 import org.simnation.common.Batch;
 import org.simnation.context.technology.Good;
+import org.simplesim.core.messaging.RoutingMessage;
 
 /**
  * Represents a demand for a {@code Good} that can be traded in form of a {@code Batch}.
  * <p>
  * Note: Implementations of the parameter T have to be singletons, so {@code IdentityHashMap} can be used.
  * <p>
- * Note: This class is thread-safe.
+ * A <i>recyclable</i> demand is kept by its sender and reused for each new order of the same market segment. It
+ * holds its escrow money, its item container and both messages of the round trip to the market, so a recurring
+ * order does not allocate any objects. A recyclable demand is <i>pending</i> from sending until it is released
+ * by its sender after being returned by the market.
+ * <p>
+ * A demand may also be a line of a {@link DemandBundle}, sharing the bundle's escrow money with the other lines. Such a
+ * line is returned to its sender as part of the bundle.
+ * <p>
+ * Note: This class is thread-safe as long as a recyclable demand is only renewed while not pending.
  *
  * @param <T> - type characterizing market segments
  * @see Good
@@ -23,11 +32,14 @@ public final class Demand<T> implements Comparable<Demand<?>> {
 
 	private final int[] addr;
 	private final T marketSegment; // market segment
-	private final int minQuantity; // minimum amount
-	private final float minQuality; // minimum quality - may be zero
-	private final double maxPrice; // maximum price
+	private int minQuantity; // minimum amount
+	private float minQuality; // minimum quality - may be zero
+	private double maxPrice; // maximum price
 	private final Money money; // cash payment in advance - only for cash-based trades
 	private Tradable<T> item=null;
+	private final RoutingMessage order, reply; // round trip messages - only for recyclable demands
+	private final DemandBundle<T> bundle; // bundle of this line - only for bundled demands
+	private volatile boolean pending=false;
 
 	/**
 	 * Constructor for a cash-based trade (cash'n carry)
@@ -46,6 +58,40 @@ public final class Demand<T> implements Comparable<Demand<?>> {
 		minQuality=qual;
 		maxPrice=p;
 		money=cash;
+		order=reply=null;
+		bundle=null;
+	}
+
+	/**
+	 * Constructor for a line of a bundle, see {@link DemandBundle#addLine(Object, int, double, float)}
+	 */
+	Demand(DemandBundle<T> bdl, T ms, int amount, double p, float qual) {
+		addr=bdl.getAddr();
+		marketSegment=ms;
+		minQuantity=amount;
+		minQuality=qual;
+		maxPrice=p;
+		money=bdl.getMoney();
+		order=reply=null;
+		bundle=bdl;
+	}
+
+	/**
+	 * Constructor for a recyclable cash-based trade
+	 *
+	 * @param addr      - address of the inquiring household
+	 * @param ms        - market segment (e.g. an instance of {@link Good})
+	 * @param market    - address of the market
+	 * @param container - empty item to collect the traded goods, kept for reuse
+	 */
+	public Demand(int[] addr, T ms, int[] market, Tradable<T> container) {
+		this.addr=addr;
+		marketSegment=ms;
+		money=new Money();
+		item=container;
+		order=new RoutingMessage(addr,market,this);
+		reply=new RoutingMessage(market,addr,this);
+		bundle=null;
 	}
 
 	/**
@@ -93,6 +139,56 @@ public final class Demand<T> implements Comparable<Demand<?>> {
 		this.item=item;
 	}
 
+	/**
+	 * @return the bundle of this line or {@code null} if the demand was sent on its own
+	 */
+	public DemandBundle<T> getBundle() {
+		return bundle;
+	}
+
+	public boolean isRecyclable() {
+		return order!=null;
+	}
+
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Renews a recyclable demand for a new order and marks it as pending.
+	 * <p>
+	 * The escrow money has to be transferred to {@link #getMoney()} before.
+	 *
+	 * @param amount - minQuantity
+	 * @param p      - maxPrice
+	 * @param qual   - minQuality
+	 * @return the message to send this demand to the market
+	 */
+	public RoutingMessage renew(int amount, double p, float qual) {
+		if (pending) throw new IllegalStateException("Demand.renew(): demand is still pending!");
+		minQuantity=amount;
+		minQuality=qual;
+		maxPrice=p;
+		pending=true;
+		return order;
+	}
+
+	/**
+	 * Releases a recyclable demand after it has been returned by the market, so it can be renewed.
+	 */
+	public void release() {
+		pending=false;
+	}
+
+	/**
+	 * Returns the prebuilt message to return this demand to its sender.
+	 *
+	 * @return the reply message or {@code null} if the demand is not recyclable
+	 */
+	public RoutingMessage getReplyMessage() {
+		return reply;
+	}
+
 	@Override
 	public String toString() {
 		return "["+getQuantity()+"U of "+getMarketSegment()+" for $"+getMaxPrice()+"] cash: "+getMoney().toString();
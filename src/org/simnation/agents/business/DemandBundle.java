@@ -0,0 +1,84 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several demands of one sender for different market segments, sent to a market in a single message.
+ * <p>
+ * All lines share the escrow money of the bundle. The market adds each line to the order book of its segment, so the
+ * clearing is the same as for single demands. After clearing, the market returns the whole bundle as one settlement
+ * message: Each line holds the items traded for it, the bundle's money holds the change.
+ * <p>
+ * Note: A bundle must not be changed after sending. Lines of the same bundle may be traded concurrently, so access to
+ * the shared money during clearing has to be synchronized on the bundle.
+ *
+ * @param <T> - type characterizing market segments
+ */
+public final class DemandBundle<T> {
+
+	private final int[] addr;
+	private final Money money;
+	private final List<Demand<T>> lines;
+
+	/**
+	 * @param addr     - address of the sender
+	 * @param capacity - expected number of lines
+	 */
+	public DemandBundle(int[] addr, int capacity) {
+		this(addr,capacity,new Money());
+	}
+
+	/**
+	 * @param addr     - address of the sender
+	 * @param capacity - expected number of lines
+	 * @param cash     - shared escrow money of all lines
+	 */
+	public DemandBundle(int[] addr, int capacity, Money cash) {
+		this.addr=addr;
+		money=cash;
+		lines=new ArrayList<>(capacity);
+	}
+
+	/**
+	 * Adds a line for a cash-based trade. The line's payment has to be transferred to {@link #getMoney()} separately.
+	 *
+	 * @param ms     - market segment (e.g. an instance of a good)
+	 * @param amount - minQuantity
+	 * @param p      - maxPrice
+	 * @param qual   - minQuality
+	 * @return the new line
+	 */
+	public Demand<T> addLine(T ms, int amount, double p, float qual) {
+		final Demand<T> line=new Demand<>(this,ms,amount,p,qual);
+		lines.add(line);
+		return line;
+	}
+
+	public List<Demand<T>> getLines() {
+		return lines;
+	}
+
+	public boolean isEmpty() {
+		return lines.isEmpty();
+	}
+
+	public int[] getAddr() {
+		return addr;
+	}
+
+	public Money getMoney() {
+		return money;
+	}
+
+	@Override
+	public String toString() {
+		return lines+" cash: "+money;
+	}
+
+}
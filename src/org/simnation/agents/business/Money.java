@@ -5,8 +5,6 @@
  */
 package org.simnation.agents.business;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 import org.simnation.common.Mergable;
 
 /**
@@ -25,38 +23,64 @@ import org.simnation.common.Mergable;
  * Never ever create money during a simulation run by any other agent than the
  * central bank!
  * <p>
- * Note: This class is thread-safe
+ * Note: This class is not thread-safe. It is meant for money confined to one agent at a time, e.g. handed over by
+ * messages. Money accessed by several threads at once has to be a {@link SharedMoney}. Both can be mixed in all
+ * operations.
  */
-public final class Money implements Mergable<Money> {
+public class Money implements Mergable<Money> {
 
-	private final AtomicLong value;
+	long value; // updated atomically by SharedMoney
 
 	public Money(long val) {
 		if (val<0) throw new IllegalArgumentException("Money(): initial value negative!");
-		value=new AtomicLong(val);
+		value=val;
 	}
 
 	public Money() {
 		this(0);
 	}
 
-	public long getValue() { return value.get(); }
+	public long getValue() { return value; }
+
+	/** Adds a (negative) amount, returns the new value */
+	long add(long amount) { return value+=amount; }
+
+	/** Sets the value to zero, returns the old value */
+	long take() {
+		final long result=value;
+		value=0;
+		return result;
+	}
+
+	/** Creates money of the same kind */
+	Money create(long amount) { return new Money(amount); }
 
 	@Override
 	public Money split(long amount) {
 		if (amount<0||amount>getValue())
 			throw new IllegalArgumentException("Money.split(): value too large or negative!");
-		value.addAndGet(-amount);
-		return new Money(amount);
+		add(-amount);
+		return create(amount);
 	}
 
 	@Override
 	public long merge(Money other) {
-		return value.addAndGet(other.value.getAndSet(0));
+		return add(other.take());
 	}
 
+	/**
+	 * Moves an amount from another money object to this one.
+	 * <p>
+	 * Equals {@code merge(other.split(amount))} without creating an intermediate object.
+	 *
+	 * @param other  the source of the transfer
+	 * @param amount the amount to transfer
+	 */
 	public void transfer(Money other, long amount) {
-		merge(other.split(amount));
+		if (amount<0||amount>other.getValue())
+			throw new IllegalArgumentException("Money.transfer(): value too large or negative!");
+		other.add(-amount);
+		add(amount);
 	}
 
 	@Override
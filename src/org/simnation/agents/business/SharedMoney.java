@@ -0,0 +1,52 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.business;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Money that may be accessed by several threads at once, e.g. payments collected by a market for a supplier of
+ * another domain in a parallel simulation run.
+ * <p>
+ * All updates of the value are atomic. A split or transfer checks the available amount before taking it, so
+ * concurrent withdrawals from the same money still have to be synchronized by the caller.
+ * <p>
+ * Note: This class is thread-safe
+ */
+public final class SharedMoney extends Money {
+
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE=MethodHandles.lookup().findVarHandle(Money.class,"value",long.class);
+		} catch (ReflectiveOperationException exception) {
+			throw new ExceptionInInitializerError(exception);
+		}
+	}
+
+	public SharedMoney(long val) {
+		super(val);
+	}
+
+	public SharedMoney() {
+		this(0);
+	}
+
+	@Override
+	public long getValue() { return (long) VALUE.getVolatile(this); }
+
+	@Override
+	long add(long amount) { return (long) VALUE.getAndAdd(this,amount)+amount; }
+
+	@Override
+	long take() { return (long) VALUE.getAndSet(this,0L); }
+
+	@Override
+	Money create(long amount) { return new SharedMoney(amount); }
+
+}
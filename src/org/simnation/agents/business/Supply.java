@@ -18,7 +18,7 @@ public final class Supply<T> implements Comparable<Supply<?>> {
 	private final int[] supplier;
 	private final double price; // actual selling price = batch price + margin
 	private final Tradable<T> item; // item offered
-	private final Money money=new Money(); // cash payment for cash-based trades
+	private final Money money=new SharedMoney(); // cash payment, paid by the market and collected by the supplier
 	private final long quantityDelivered;
 
 	/**
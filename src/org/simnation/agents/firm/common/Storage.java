@@ -13,6 +13,9 @@ package org.simnation.agents.firm.common;
 import org.simnation.common.Batch;
 import org.simnation.common.Statistics;
 import org.simnation.context.technology.Good;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 
 /**
  * Storage represent a stock of a good and provides additional statistic
@@ -33,7 +36,7 @@ import org.simnation.context.technology.Good;
  * @see Batch
  * 
  */
-public class Storage {
+public class Storage implements Snapshotable {
 
 	private final Batch batch;	// stored items
 	private final Statistics stat=new Statistics(); // statistics
@@ -110,6 +113,23 @@ public class Storage {
 		return Math.round(orderCount*stat.getAVG()+safetyStock);
 	}
 
+	/**
+	 * Writes the statistics of the storage, the stored batch is part of the owner's DTO.
+	 */
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		stat.writeSnapshot(out);
+		out.putInt(orderCount);
+		out.putInt(missCount);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		stat.readSnapshot(in);
+		orderCount=in.getInt();
+		missCount=in.getInt();
+	}
+
 	/**
 	 * Resets all statistics and begin a new time series
 	 **/
@@ -136,6 +156,8 @@ public class Storage {
 
 	public long getStockValue() { return batch.getValue(); }
 
+	public float getStockQuality() { return batch.getQuality(); }
+
 	/**
 	 * Returns the inverse of the standardized normal distribution for a given value
 	 * (sl=desired service level).
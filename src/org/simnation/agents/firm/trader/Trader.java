@@ -10,17 +10,20 @@
  */
 package org.simnation.agents.firm.trader;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.simnation.agents.AbstractBasicAgent;
+import org.simnation.agents.AgentLog;
+import org.simnation.agents.AgentLog.Kind;
 import org.simnation.agents.business.Demand;
 import org.simnation.agents.business.Supply;
 import org.simnation.agents.market.GoodsMarketB2C;
 import org.simnation.common.Batch;
-import org.simnation.common.Statistics;
+import org.simnation.common.StatisticsBank;
 import org.simnation.context.technology.Good;
+import org.simnation.model.Domain;
 import org.simnation.model.Model;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 import org.simplesim.core.messaging.RoutingMessage;
 import org.simplesim.core.scheduling.Time;
 
@@ -31,7 +34,7 @@ import org.simplesim.core.scheduling.Time;
  *
  */
 
-public final class Trader extends AbstractBasicAgent<TraderState, Trader.EVENT> {
+public final class Trader extends AbstractBasicAgent<TraderState, Trader.EVENT> implements Snapshotable {
 
 	private static final Time TRADER_OFFSET=new Time(1); // be the first agent to start
 	private static final Time TRADER_PERIOD=Time.DAY;  // deliver daily to market
@@ -46,16 +49,18 @@ public final class Trader extends AbstractBasicAgent<TraderState, Trader.EVENT>
 	 * ACCOUNTING_PERIOD_ENDED, MACHINE_LIFETIME_ENDED;
 	 */
 
-	private final Map<int[], Statistics> salesVolume=new HashMap<>();
-	private final Map<int[], Statistics> salesTurnover=new HashMap<>();
+	// sales statistics per market, indexed by the market's domain index
+	private final StatisticsBank salesVolume;
+	private final StatisticsBank salesTurnover;
 
 	public Trader(TraderDTO dbs) {
 		super(new TraderState());
 		dbs.convertDTO2State(getState());
-		for (GoodsMarketB2C market : Model.getInstance().getB2CMarketSet()) {
-			salesVolume.put(market.getAddress(),new Statistics());
-			salesTurnover.put(market.getAddress(),new Statistics());
-		}
+		int domains=0;
+		for (GoodsMarketB2C market : Model.getInstance().getB2CMarketSet())
+			domains=Math.max(domains,market.getDomainIndex()+1);
+		salesVolume=new StatisticsBank(domains);
+		salesTurnover=new StatisticsBank(domains);
 		enqueueEvent(EVENT.supplyMarket,TRADER_OFFSET); // start simulation with posting offers to market
 	}
 
@@ -84,23 +89,23 @@ public final class Trader extends AbstractBasicAgent<TraderState, Trader.EVENT>
 		if (msg.getContent().getClass()==Demand.class) {
 
 		} else if (msg.getContent().getClass()==Supply.class) {
-			final int[] market=msg.getSource();
+			final int market=Domain.getDomainIndex(msg.getSource());
 			final Supply<?> supply=(Supply<?>) msg.getContent();
-			log("\t received returned supply of "+supply.toString());
-			salesVolume.get(market).update(supply.getQuantitySold());
+			salesVolume.update(market,supply.getQuantitySold());
 			getState().getStorage().addToStock((Batch) supply.getItem());
-			salesTurnover.get(market).update(supply.getMoney().getValue());
+			salesTurnover.update(market,supply.getMoney().getValue());
+			if (AgentLog.isEnabled(Kind.SUPPLY_RETURNED)) AgentLog.record(Kind.SUPPLY_RETURNED,this,supply.getMarketSegment(),
+					supply.getQuantitySold(),supply.getMoney().getValue(),getState().getMoney().getValue()+supply.getMoney().getValue(),0);
 			getState().getMoney().merge(supply.getMoney());
-			log("\t money is now at "+getState().getMoney().toString());
 		} else throw new UnhandledMessageType(msg,this);
 	}
 
 	private void sendSupplyToMarket() {
 		// send trading good to all markets
 		for (GoodsMarketB2C market : Model.getInstance().getB2CMarketSet()) {
-			final Statistics statistics=salesVolume.get(market.getAddress());
+			final int domain=market.getDomainIndex();
 			// estimate delivery volume as average sales volume plus standard deviation
-			double quantity=statistics.getAVG()+Math.sqrt(statistics.getVAR());
+			double quantity=salesVolume.getAVG(domain)+salesVolume.getSTD(domain);
 			// if there are no statistics yet, deliver an equal share of the current stock to each market
 			if (quantity==0) quantity=getState().getStorage().getStockLevel()/Model.getInstance().getRegions().size();
 			final Batch batch=getState().getStorage().removeFromStock((long) quantity);
@@ -110,12 +115,49 @@ public final class Trader extends AbstractBasicAgent<TraderState, Trader.EVENT>
 			final Supply<Good> supply=new Supply<>(getAddress(),batch,price);
 			final RoutingMessage msg=new RoutingMessage(getAddress(),market.getAddress(),supply);
 			sendMessage(msg);
-			//log("\t"+stat.toString());
-			log("\t send supply to market: "+supply.toString());
+			if (AgentLog.isEnabled(Kind.SUPPLY_SENT))
+				AgentLog.record(Kind.SUPPLY_SENT,this,batch.getType(),batch.getQuantity(),0,0,price);
+		}
+	}
+
+	/**
+	 * Writes the trader's state and events.
+	 * <p>
+	 * The trader's DTO is written first, so a trader can be constructed from it before reading the rest by
+	 * {@link #readSnapshot(SnapshotReader)}. Sales statistics are identified by the market's domain.
+	 */
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		final TraderDTO dto=new TraderDTO();
+		dto.convertState2DTO(getState());
+		dto.writeSnapshot(out);
+		out.putFloat(getState().getMargin());
+		out.putFloat(getState().getServiceLevel());
+		getState().getStorage().writeSnapshot(out);
+		out.putInt(Model.getInstance().getB2CMarketSet().size());
+		for (GoodsMarketB2C market : Model.getInstance().getB2CMarketSet()) {
+			final int domain=market.getDomainIndex();
+			out.putInt(domain);
+			salesVolume.writeSnapshot(domain,out);
+			salesTurnover.writeSnapshot(domain,out);
+		}
+		writeEvents(out);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		getState().setMargin(in.getFloat());
+		getState().setServiceLevel(in.getFloat());
+		getState().getStorage().readSnapshot(in);
+		for (int count=in.getInt(); count>0; count--) {
+			final int domain=in.getInt();
+			salesVolume.readSnapshot(domain,in);
+			salesTurnover.readSnapshot(domain,in);
 		}
+		readEvents(in,EVENT.values());
 	}
 
 	@Override
 	public String getName() { return "Trader"; }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -7,6 +7,9 @@ import org.simnation.common.Batch;
 import org.simnation.context.geography.Region;
 import org.simnation.context.technology.Good;
 import org.simnation.persistence.DataTransferObject;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -16,7 +19,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 
 @Entity
-public class TraderDTO implements DataTransferObject<TraderState> {
+public class TraderDTO implements DataTransferObject<TraderState>, Snapshotable {
 
 	@Id
 	@GeneratedValue(strategy=GenerationType.SEQUENCE)
@@ -75,7 +78,30 @@ public class TraderDTO implements DataTransferObject<TraderState> {
 
 
 	@Override
-	public void convertState2DTO(TraderState state) { // TODO Auto-generated method stub
-	 }
+	public void convertState2DTO(TraderState state) {
+		cash=state.getMoney().getValue();
+		good=state.getStorage().getGood();
+		stockQuantity=state.getStorage().getStockLevel();
+		stockValue=state.getStorage().getStockValue();
+		stockQuality=state.getStorage().getStockQuality();
+	}
+
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		out.putReference(good);
+		out.putLong(cash);
+		out.putLong(stockQuantity);
+		out.putLong(stockValue);
+		out.putFloat(stockQuality);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		good=in.getReference();
+		cash=in.getLong();
+		stockQuantity=in.getLong();
+		stockValue=in.getLong();
+		stockQuality=in.getFloat();
+	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.household;
+
+import java.util.stream.IntStream;
+
+import org.simnation.agents.AbstractBasicAgent;
+import org.simnation.model.Model;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
+import org.simplesim.core.messaging.RoutingMessage;
+import org.simplesim.core.scheduling.Time;
+import org.simplesim.model.State;
+
+/**
+ * Agent planning the monthly budget of all households of a domain in one pass.
+ * <p>
+ * All households plan their budget at the same tick with the same regional prices. So instead of one budget event
+ * per household, the planner has one event per domain and runs the budget planning of {@link Household} over the
+ * columns of the domain's {@link HouseholdPopulation}. Households are independent of each other, so the population
+ * may optionally be split into chunks planned concurrently (see {@link #setParallel(boolean)}).
+ * <p>
+ * The planner is not batchable, so the domain-parallel simulator activates it before the households due at the same
+ * tick and they see their new budgets already. The sequential simulator does not order agents due at the same time,
+ * so there a household activated at the planning tick may still spend the budget of the previous period.
+ */
+public final class BudgetPlanner extends AbstractBasicAgent<BudgetPlanner.PlannerState, BudgetPlanner.EVENT>
+		implements Snapshotable {
+
+	enum EVENT {
+		planBudget
+	}
+
+	/** The planner has no state of its own, it works on the population's columns */
+	static final class PlannerState implements State {}
+
+	private static final int CHUNK_SIZE=1024; // rows planned by one task in parallel mode
+
+	private static boolean parallel=false;
+
+	private final HouseholdPopulation population;
+
+	/**
+	 * @param pop the population of the domain, its households must not schedule budget events of their own
+	 */
+	public BudgetPlanner(HouseholdPopulation pop) {
+		super(new PlannerState());
+		population=pop;
+		enqueueEvent(EVENT.planBudget,Household.BUDGET_OFFSET);
+	}
+
+	/**
+	 * Sets whether the population is planned in chunks on the common fork-join pool. Has to be set before starting
+	 * the simulation.
+	 *
+	 * @param value {@code true} to plan concurrently, {@code false} to plan in one loop
+	 */
+	public static void setParallel(boolean value) { parallel=value; }
+
+	@Override
+	protected void handleEvent(EVENT event, Time time) {
+		if (event!=EVENT.planBudget) throw new UnhandledEventType(event,this);
+		planBudgets(time.getTicks());
+		enqueueEvent(EVENT.planBudget,time.add(Household.BUDGET_PERIOD));
+	}
+
+	@Override
+	protected void handleMessage(RoutingMessage msg) {
+		throw new UnhandledMessageType(msg,this);
+	}
+
+	private void planBudgets(long tick) {
+		final double[] prices=getDomain().getNeedPrices(tick);
+		final int size=population.size();
+		if (!parallel||size<=CHUNK_SIZE) planBudgets(tick,prices,0,size);
+		else IntStream.range(0,(size+CHUNK_SIZE-1)/CHUNK_SIZE).parallel().forEach(
+				chunk -> planBudgets(tick,prices,chunk*CHUNK_SIZE,Math.min(size,(chunk+1)*CHUNK_SIZE)));
+	}
+
+	/**
+	 * Plans the budgets of a range of rows, see {@code Household.planBudget}.
+	 */
+	private void planBudgets(long tick, double[] prices, int from, int to) {
+		final HouseholdPopulation pop=population;
+		final int needs=pop.getNeedCount();
+		final int[] planIndex=Household.getPlanIndex();
+		final int[] planUrgency=Household.getPlanUrgency();
+		final double growth=Model.getInstance().getEconomicGrowth();
+		for (int row=from; row<to; row++) {
+			long total=pop.money[row].getValue();
+			pop.budgetPeriodStart[row]=tick;
+			pop.totalBudget[row]=total;
+			final int share=(int) (total/planIndex.length); // fall back without a valid market price
+			final int offset=row*needs;
+			for (int pos=0; pos<planIndex.length; pos++) { // traverse need hierarchy from bottom to top
+				final int need=offset+planIndex[pos];
+				if (total>0) {
+					final double price=prices[planIndex[pos]];
+					int budget=price<=0 ? share : (int) (price*(pop.consumption[need]*Time.DAYS_PER_MONTH));
+					if (total<budget) budget=(int) total; // adjust if out of budget
+					total-=budget;
+					pop.budget[need]=budget;
+					pop.urgencyLevel[row]=planUrgency[pos]; // save highest urgency level possible to achieve
+				} else { // insufficient funds, disable need for this budget period
+					pop.budget[need]=0;
+					pop.needLevel[need]=0;
+				}
+				// update cached pricing factors, see HouseholdState.updatePricing()
+				pop.expectedPrice[need]=(double) pop.budget[need]/(pop.consumption[need]*Time.DAYS_PER_MONTH);
+			}
+			pop.pricingConstant[row]=growth*pop.extraversion[row];
+		}
+	}
+
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		writeEvents(out);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		readEvents(in,EVENT.values());
+	}
+
+	@Override
+	public String getName() { return "BudgetPlanner"; }
+
+}
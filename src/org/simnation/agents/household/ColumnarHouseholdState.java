@@ -0,0 +1,143 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event
+ * simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors: - Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.agents.household;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Money;
+import org.simnation.context.technology.Good;
+
+/**
+ * Household state accessing a row of a {@link HouseholdPopulation}.
+ */
+final class ColumnarHouseholdState extends HouseholdState {
+
+	private final HouseholdPopulation population;
+	private final int row; // index of the household within the population
+	private final int offset; // start of the household's entries in per-need columns
+
+	ColumnarHouseholdState(HouseholdPopulation pop, int index) {
+		population=pop;
+		row=index;
+		offset=index*pop.getNeedCount();
+	}
+
+	/** @return index of the household within the population */
+	int getRow() { return row; }
+
+	HouseholdPopulation getPopulation() { return population; }
+
+	@Override
+	Money getMoney() { return population.money[row]; }
+
+	@Override
+	void setMoney(Money value) { population.money[row]=value; }
+
+	@Override
+	int getAdults() { return population.adults[row]; }
+
+	@Override
+	void setAdults(int value) {
+		population.adults[row]=value;
+		updateConsumption();
+	}
+
+	@Override
+	int getChildren() { return population.children[row]; }
+
+	@Override
+	void setChildren(int value) {
+		population.children[row]=value;
+		updateConsumption();
+	}
+
+	@Override
+	float getExtraversion() { return population.extraversion[row]; }
+
+	@Override
+	void setExtraversion(float value) { population.extraversion[row]=value; }
+
+	@Override
+	int getUrgencyLevel() { return population.urgencyLevel[row]; }
+
+	@Override
+	void setUrgencyLevel(int value) { population.urgencyLevel[row]=value; }
+
+	@Override
+	long getTotalBudget() { return population.totalBudget[row]; }
+
+	@Override
+	void setTotalBudget(long value) { population.totalBudget[row]=value; }
+
+	@Override
+	int getBudget(Need nd) { return population.budget[offset+nd.getIndex()]; }
+
+	@Override
+	void setBudget(Need nd, int value) { population.budget[offset+nd.getIndex()]=value; }
+
+	@Override
+	int getNeedLevel(Need nd) { return population.needLevel[offset+nd.getIndex()]; }
+
+	@Override
+	void setNeedLevel(Need nd, int value) { population.needLevel[offset+nd.getIndex()]=value; }
+
+	@Override
+	void decreaseNeedLevel(Need nd, int value) { population.needLevel[offset+nd.getIndex()]-=value; }
+
+	@Override
+	void increaseNeedLevel(Need nd, int value) { population.needLevel[offset+nd.getIndex()]+=value; }
+
+	@Override
+	Demand<Good> getOrder(Need nd) { return population.orders[offset+nd.getIndex()]; }
+
+	@Override
+	void setOrder(Need nd, Demand<Good> value) { population.orders[offset+nd.getIndex()]=value; }
+
+	@Override
+	long getBudgetPeriodStart() { return population.budgetPeriodStart[row]; }
+
+	@Override
+	void setBudgetPeriodStart(long ticks) { population.budgetPeriodStart[row]=ticks; }
+
+	@Override
+	long getDueTick(Need nd) { return population.dueTick[offset+nd.getIndex()]; }
+
+	@Override
+	void setDueTick(Need nd, long ticks) { population.dueTick[offset+nd.getIndex()]=ticks; }
+
+	@Override
+	int getDailyConsumption(Need nd) { return population.consumption[offset+nd.getIndex()]; }
+
+	@Override
+	int getActivationLevel(Need nd) { return population.activationLevel[offset+nd.getIndex()]; }
+
+	@Override
+	int getFrustrationLevel(Need nd) { return population.frustrationLevel[offset+nd.getIndex()]; }
+
+	@Override
+	void setConsumption(Need nd, int daily, int activation, int frustration) {
+		population.consumption[offset+nd.getIndex()]=daily;
+		population.activationLevel[offset+nd.getIndex()]=activation;
+		population.frustrationLevel[offset+nd.getIndex()]=frustration;
+	}
+
+	@Override
+	double getExpectedPrice(Need nd) { return population.expectedPrice[offset+nd.getIndex()]; }
+
+	@Override
+	void setExpectedPrice(Need nd, double value) { population.expectedPrice[offset+nd.getIndex()]=value; }
+
+	@Override
+	double getPricingConstant() { return population.pricingConstant[row]; }
+
+	@Override
+	void setPricingConstant(double value) { population.pricingConstant[row]=value; }
+
+}
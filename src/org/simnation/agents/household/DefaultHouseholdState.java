@@ -0,0 +1,162 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event
+ * simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors: - Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.agents.household;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Money;
+import org.simnation.context.technology.Good;
+import org.simnation.model.Model;
+
+/**
+ * Household state keeping all state variables in the object itself.
+ */
+final class DefaultHouseholdState extends HouseholdState {
+
+	// set during initialization
+	private int adults, children;
+	private Money money;
+	private float extraversion;
+
+	// set at during simulation
+	private long budgetPeriodStart;
+	private long totalBudget;
+	private final int budget[]; // budgets per need
+	private final int needLevel[]; // saturation
+	private int urgencyLevel;
+	private final Demand<Good> orders[]; // recyclable demands per need, created on first order
+	private final long dueTick[]; // next activation per need, coalesced scheduling only
+
+	// derived from the household's composition
+	private final int consumption[]; // daily consumption per need
+	private final double expectedPrice[]; // per need, derived from budget and consumption
+	private double pricingConstant;
+	private final int activationLevel[]; // per need
+	private final int frustrationLevel[]; // per need
+
+	@SuppressWarnings("unchecked")
+	DefaultHouseholdState() {
+		budget=new int[Model.getInstance().getNeeds().size()];
+		needLevel=new int[Model.getInstance().getNeeds().size()];
+		orders=new Demand[Model.getInstance().getNeeds().size()];
+		dueTick=new long[Model.getInstance().getNeeds().size()];
+		consumption=new int[Model.getInstance().getNeeds().size()];
+		expectedPrice=new double[Model.getInstance().getNeeds().size()];
+		activationLevel=new int[Model.getInstance().getNeeds().size()];
+		frustrationLevel=new int[Model.getInstance().getNeeds().size()];
+	}
+
+	@Override
+	Money getMoney() { return money; }
+
+	@Override
+	void setMoney(Money value) { money=value; }
+
+	@Override
+	int getAdults() { return adults; }
+
+	@Override
+	void setAdults(int value) {
+		adults=value;
+		updateConsumption();
+	}
+
+	@Override
+	int getChildren() { return children; }
+
+	@Override
+	void setChildren(int value) {
+		children=value;
+		updateConsumption();
+	}
+
+	@Override
+	float getExtraversion() { return extraversion; }
+
+	@Override
+	void setExtraversion(float value) { extraversion=value; }
+
+	@Override
+	int getUrgencyLevel() { return urgencyLevel; }
+
+	@Override
+	void setUrgencyLevel(int value) { urgencyLevel=value; }
+
+	@Override
+	long getTotalBudget() { return totalBudget; }
+
+	@Override
+	void setTotalBudget(long value) { totalBudget=value; }
+
+	@Override
+	int getBudget(Need nd) { return budget[nd.getIndex()]; }
+
+	@Override
+	void setBudget(Need nd, int value) { budget[nd.getIndex()]=value; }
+
+	@Override
+	int getNeedLevel(Need nd) { return needLevel[nd.getIndex()]; }
+
+	@Override
+	void setNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]=value; }
+
+	@Override
+	void decreaseNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]-=value; }
+
+	@Override
+	void increaseNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]+=value; }
+
+	@Override
+	Demand<Good> getOrder(Need nd) { return orders[nd.getIndex()]; }
+
+	@Override
+	void setOrder(Need nd, Demand<Good> value) { orders[nd.getIndex()]=value; }
+
+	@Override
+	long getBudgetPeriodStart() { return budgetPeriodStart; }
+
+	@Override
+	void setBudgetPeriodStart(long ticks) { budgetPeriodStart=ticks; }
+
+	@Override
+	long getDueTick(Need nd) { return dueTick[nd.getIndex()]; }
+
+	@Override
+	void setDueTick(Need nd, long ticks) { dueTick[nd.getIndex()]=ticks; }
+
+	@Override
+	int getDailyConsumption(Need nd) { return consumption[nd.getIndex()]; }
+
+	@Override
+	int getActivationLevel(Need nd) { return activationLevel[nd.getIndex()]; }
+
+	@Override
+	int getFrustrationLevel(Need nd) { return frustrationLevel[nd.getIndex()]; }
+
+	@Override
+	void setConsumption(Need nd, int daily, int activation, int frustration) {
+		consumption[nd.getIndex()]=daily;
+		activationLevel[nd.getIndex()]=activation;
+		frustrationLevel[nd.getIndex()]=frustration;
+	}
+
+	@Override
+	double getExpectedPrice(Need nd) { return expectedPrice[nd.getIndex()]; }
+
+	@Override
+	void setExpectedPrice(Need nd, double value) { expectedPrice[nd.getIndex()]=value; }
+
+	@Override
+	double getPricingConstant() { return pricingConstant; }
+
+	@Override
+	void setPricingConstant(double value) { pricingConstant=value; }
+
+}
@@ -0,0 +1,22 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.household;
+
+/**
+ * Default pricing rule: The expected price is modified by the geometric mean of the four factors urgency, security,
+ * economic growth and extraversion.
+ * <p>
+ * The fourth root is calculated as {@code Math.sqrt(Math.sqrt(x))}, which is compiled to two square root
+ * instructions instead of a general power function.
+ */
+public final class GeometricMeanPricing implements PricingRule {
+
+	@Override
+	public double calcPrice(double expectedPrice, double urgency, double security, double constant) {
+		return expectedPrice*Math.sqrt(Math.sqrt(urgency*security*constant)); // x^0.25=(x^0.5)^0.5
+	}
+
+}
@@ -10,44 +10,83 @@
  */
 package org.simnation.agents.household;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.Set;
 
-import org.apache.commons.math3.util.FastMath;
 import org.simnation.agents.AbstractBasicAgent;
+import org.simnation.agents.AgentLog;
+import org.simnation.agents.AgentLog.Kind;
 import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.DemandBundle;
 import org.simnation.agents.business.Money;
 import org.simnation.agents.household.Need.URGENCY;
 import org.simnation.common.Batch;
 import org.simnation.context.technology.Good;
 import org.simnation.model.Domain;
 import org.simnation.model.Model;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
+import org.simnation.simulator.Batchable;
 import org.simplesim.core.messaging.RoutingMessage;
 import org.simplesim.core.scheduling.Time;
 
 /**
  * Agent of a household
+ * <p>
+ * Households only change their own state and communicate with the domain's market via messages, so all households
+ * due at the same time can be activated as a batch.
+ * <p>
+ * By default, each need has an activation event of its own and sends its own demand. With coalesced need scheduling
+ * (see {@link #setCoalescedScheduling(boolean)}), a household keeps the tick each need is due in its state and only
+ * schedules one wake-up at the earliest due tick. On wake-up, all needs due until the end of that day are processed at
+ * once and their demands are sent to the market as one {@link DemandBundle} with a single escrow money. So there is at
+ * most one need activation, one order and one settlement message per household and day, at the cost of processing some
+ * needs up to one day early.
  *
  */
-public final class Household extends AbstractBasicAgent<HouseholdState, Household.EVENT> {
+public final class Household extends AbstractBasicAgent<HouseholdState, Household.EVENT>
+		implements Batchable, Snapshotable {
 
-	private static final Time BUDGET_OFFSET=new Time(3); // be the third agent to start
-	private static final Time BUDGET_PERIOD=Time.MONTH;	 // monthly budget planning
+	static final Time BUDGET_OFFSET=new Time(3); // be the third agent to start
+	static final Time BUDGET_PERIOD=Time.MONTH;	 // monthly budget planning
+
+	private static boolean coalescedScheduling=false;
+	private static PricingRule pricingRule=new GeometricMeanPricing();
 	
 
 	public Household(HouseholdDTO dto) {
-		super(new HouseholdState());
+		this(dto,null);
+	}
+
+	/**
+	 * Constructs a household, optionally keeping its state in a columnar population store.
+	 *
+	 * @param dto        initial state of the household
+	 * @param population columnar store for the household's state, {@code null} for a state object of its own. If the
+	 *                   model plans the budgets of populations (see {@link Model#isPopulationBudgeting()}), the
+	 *                   household's budget is planned by the domain's {@link BudgetPlanner}.
+	 */
+	public Household(HouseholdDTO dto, HouseholdPopulation population) {
+		super(population==null ? new DefaultHouseholdState() : population.createState());
 		dto.convertDTO2State(getState());	// setup state
+		getState().updatePricing();
+		long firstDue=Long.MAX_VALUE;
 		for (Need need : Model.getInstance().getNeeds()) { // setup need level and events
 			final double x=dto.getNeedLevel(need.getIndex());
 			getState().setNeedLevel(need,(int) (getActivationLevel(need)*x));
-			enqueueEvent(need.getEvent(),new Time((long) (x*Time.days(need.getActivationDays()))));
+			final long due=(long) (x*Time.days(need.getActivationDays()));
+			if (coalescedScheduling) {
+				getState().setDueTick(need,due);
+				firstDue=Math.min(firstDue,due);
+			} else enqueueEvent(need.getEvent(),new Time(due));
 		}
-		enqueueEvent(EVENT.planBudget,BUDGET_OFFSET);
+		if (firstDue<Long.MAX_VALUE) enqueueEvent(EVENT.activateNeeds,new Time(firstDue));
+		if (population==null||!Model.getInstance().isPopulationBudgeting()) enqueueEvent(EVENT.planBudget,BUDGET_OFFSET);
 	}
 
 	/*
@@ -57,7 +96,11 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 	protected void handleEvent(EVENT event, Time time) {
 		if (isNeedActivationEvent(event)) processNeedActivationEvent(event,time);
 		else switch (event) { // all other events are handled here...
-		case planBudget: planBudget(time); break;
+		case planBudget:
+			planBudget(time);
+			enqueueEvent(EVENT.planBudget,time.add(BUDGET_PERIOD));
+			break;
+		case activateNeeds: processDueNeeds(time); break;
 		case applyForJob:
 			break;
 		default: // error: event type not known - this should never happen!
@@ -66,50 +109,167 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 	}
 
 	/**
-	 * @param i
+	 * Sends a demand to the domain's goods market.
+	 * <p>
+	 * Uses the need's recyclable demand, so the daily order cycle does not allocate any objects. Only if this demand is
+	 * still pending at the market, a new one-shot demand is sent. If a bundle is given, the demand is added to the bundle
+	 * as a line instead and its payment goes to the bundle's shared money.
 	 */
-	private void sendDemand(Need nd, int amount, double price) {
+	private void sendDemand(Need nd, int amount, double price, DemandBundle<Good> bundle) {
 		final float quality=0;
-		final Money money=getState().getMoney().split((long) (amount*price)+1); // round up
-		final Demand<Good> demand=new Demand<>(getAddress(),nd.getSatisfier(),amount,price,quality,money);
-		sendMessage(new RoutingMessage(getAddress(),((Domain) getParent()).getGoodsMarket().getAddress(),demand));
-		log("\t sent demand to market: "+demand.toString());
+		final long cash=(long) (amount*price)+1; // round up
+		if (bundle!=null) {
+			bundle.getMoney().transfer(getState().getMoney(),cash);
+			bundle.addLine(nd.getSatisfier(),amount,price,quality);
+		} else sendSingleDemand(nd,amount,price,quality,cash);
+		if (AgentLog.isEnabled(Kind.DEMAND_SENT))
+			AgentLog.record(Kind.DEMAND_SENT,this,nd.getSatisfier(),amount,cash,0,price);
+	}
+
+	private void sendSingleDemand(Need nd, int amount, double price, float quality, long cash) {
+		Demand<Good> demand=getState().getOrder(nd);
+		if (demand==null) demand=createOrder(nd); // first order of this need
+		if (demand.isPending()) { // previous order not returned yet
+			final Money money=getState().getMoney().split(cash);
+			demand=new Demand<>(getAddress(),nd.getSatisfier(),amount,price,quality,money);
+			sendMessage(new RoutingMessage(getAddress(),((Domain) getParent()).getGoodsMarket().getAddress(),demand));
+		} else {
+			demand.getMoney().transfer(getState().getMoney(),cash);
+			sendMessage(demand.renew(amount,price,quality));
+		}
+	}
+
+	/**
+	 * Creates the recyclable demand of a need.
+	 */
+	private Demand<Good> createOrder(Need nd) {
+		final int[] market=((Domain) getParent()).getGoodsMarket().getAddress();
+		final Demand<Good> demand=new Demand<>(getAddress(),nd.getSatisfier(),market,new Batch(nd.getSatisfier()));
+		getState().setOrder(nd,demand);
+		return demand;
+	}
+
+	/**
+	 * Returns the recyclable demand for a good.
+	 * <p>
+	 * Used to restore the demands pending at the market from a snapshot.
+	 *
+	 * @param good the good
+	 * @return the recyclable demand or {@code null} if the household has never ordered this good
+	 */
+	public Demand<Good> getOrder(Good good) {
+		return getState().getOrder(mapConsumable2Need(good));
+	}
+
+	/**
+	 * Writes the household's state and events.
+	 * <p>
+	 * The household's DTO is written first, so a household can be constructed from it before reading the rest by
+	 * {@link #readSnapshot(SnapshotReader)}. Recyclable demands are written without content, pending ones are
+	 * restored by the market.
+	 */
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		final HouseholdDTO dto=new HouseholdDTO();
+		dto.convertState2DTO(getState());
+		dto.writeSnapshot(out);
+		out.putInt(getState().getUrgencyLevel());
+		out.putLong(getState().getTotalBudget());
+		out.putLong(getState().getBudgetPeriodStart());
+		for (Need need : mappingEvent2Need.values()) { // in the order of the need index
+			out.putInt(getState().getBudget(need));
+			out.putInt(getState().getNeedLevel(need));
+			out.putLong(getState().getDueTick(need));
+			out.putBoolean(getState().getOrder(need)!=null);
+		}
+		writeEvents(out);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		getState().setUrgencyLevel(in.getInt());
+		getState().setTotalBudget(in.getLong());
+		getState().setBudgetPeriodStart(in.getLong());
+		for (Need need : mappingEvent2Need.values()) {
+			getState().setBudget(need,in.getInt());
+			getState().setNeedLevel(need,in.getInt());
+			getState().setDueTick(need,in.getLong());
+			if (in.getBoolean()) createOrder(need);
+		}
+		getState().updatePricing();
+		readEvents(in,EVENT.values());
 	}
 
 	private void processNeedActivationEvent(EVENT event, Time time) {
-		final Need need=mapEvent2Need(event);
-		
+		final Time next=activateNeed(mapEvent2Need(event),time,null);
+		if (next!=null) enqueueEvent(event,next);
+	}
+
+	/**
+	 * Processes all needs due until the end of the day and sends their demands as one bundle (coalesced need
+	 * scheduling).
+	 */
+	private void processDueNeeds(Time time) {
+		final long endOfDay=(time.getTicks()/Time.TICKS_PER_DAY+1)*Time.TICKS_PER_DAY;
+		DemandBundle<Good> bundle=null;
+		long nextDue=Long.MAX_VALUE;
+		for (Need need : mappingEvent2Need.values()) {
+			long due=getState().getDueTick(need);
+			if (due<endOfDay) {
+				if (bundle==null) bundle=new DemandBundle<>(getAddress(),mappingEvent2Need.size());
+				final Time next=activateNeed(need,time,bundle);
+				due=next==null ? Long.MAX_VALUE : next.getTicks();
+				getState().setDueTick(need,due);
+			}
+			nextDue=Math.min(nextDue,due);
+		}
+		if (bundle!=null&&!bundle.isEmpty())
+			sendMessage(new RoutingMessage(getAddress(),getDomain().getGoodsMarket().getAddress(),bundle));
+		if (nextDue<Long.MAX_VALUE) enqueueEvent(EVENT.activateNeeds,new Time(nextDue));
+	}
+
+	/**
+	 * Does the activation cycle of a need and orders its satisfier.
+	 *
+	 * @param need   the need
+	 * @param time   the actual time
+	 * @param bundle bundle to add the demand to, {@code null} to send the demand on its own
+	 * @return time of the need's next activation, {@code null} if there is none
+	 */
+	private Time activateNeed(Need need, Time time, DemandBundle<Good> bundle) {
 		// check for disabled needs
 		if (getState().getBudget(need)==0) { // need disabled, try again next month
-			enqueueEvent(event,getState().getBudgetPeriodStart().add(BUDGET_PERIOD.getTicks()+1));
-			return;
+			return new Time(getState().getBudgetPeriodStart()+BUDGET_PERIOD.getTicks()+1);
 		}
 		
 		// cycle for active needs
 		final int nl=getState().getNeedLevel(need);
 		final int al=getActivationLevel(need);
+		final Time next;
 
 		if (nl==0) { // normal cycle, need fully satisfied
 			getState().setNeedLevel(need,al);
-			enqueueEvent(need.getEvent(),time.add(Time.days(need.getActivationDays())));
+			next=time.add(Time.days(need.getActivationDays()));
 		} 
-		else if (nl<getActivationLevel(need)) { // normal cycle, need partially satisfied
+		else if (nl<al) { // normal cycle, need partially satisfied
 			getState().setNeedLevel(need,al);			
-			enqueueEvent(need.getEvent(),time.add(((al-nl)*Time.days(need.getActivationDays()))/al));
+			next=time.add(((al-nl)*Time.days(need.getActivationDays()))/al);
 		} 
 		else if (nl<=getFrustrationLevel(need)) { // frustration phase
-			getState().increaseNeedLevel(need,getConsumption(need,1));	// increase by consumption of one day
-			enqueueEvent(need.getEvent(),time.add(Time.DAY));// try again the next day
+			getState().increaseNeedLevel(need,getState().getDailyConsumption(need));	// increase by consumption of one day
+			next=time.add(Time.DAY);// try again the next day
 		} 
 		else { // regression
 			// modify urgency level
+			next=null;
 		} 
-		sendDemand(need,getState().getNeedLevel(need),calcPricing(need,time));
+		sendDemand(need,getState().getNeedLevel(need),calcPricing(need,time),bundle);
+		return next;
 	}
 
-	private int getFrustrationLevel(Need need) { return getConsumption(need,need.getActivationDays()+need.getFrustrationDays()); }
+	private int getFrustrationLevel(Need need) { return getState().getFrustrationLevel(need); }
 
-	private int getActivationLevel(Need need) { return getConsumption(need,need.getActivationDays()); }
+	private int getActivationLevel(Need need) { return getState().getActivationLevel(need); }
 
 	/**
 	 * @param nd
@@ -132,8 +292,20 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 			if (batch!=null) // reduce need level by consumption
 				getState().decreaseNeedLevel(mapConsumable2Need(batch.getType()),(int) batch.consume());
 			getState().getMoney().merge(demand.getMoney()); // take back change money
-			demand.setItem(null); 							// item used, prevent memory leak
+			if (demand.isRecyclable()) { // keep empty item for the next order
+				if (batch!=null) batch.setValue(0);
+				demand.release();
+			} 
+			else demand.setItem(null); 						// item used, prevent memory leak
 		} 
+		else if (msg.getContent().getClass()==DemandBundle.class) { // settlement of all lines at once
+			final DemandBundle<Good> bundle=msg.getContent();
+			for (Demand<Good> line : bundle.getLines()) {
+				final Batch batch=(Batch) line.getItem();
+				if (batch!=null) getState().decreaseNeedLevel(mapConsumable2Need(batch.getType()),(int) batch.consume());
+			}
+			getState().getMoney().merge(bundle.getMoney()); // take back change money
+		}
 		else throw new UnhandledMessageType(msg,this);
 	}
 
@@ -143,66 +315,83 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 	 * - remaining time and money of the budget period (as relative cash depletion)
 	 * - internal security factor (i.e. household's readiness to assume risk)
 	 * - external security factor (i.e. national economy forecast)
+	 * <p>
+	 * The expected price and the constant factors are cached by the state, the price is calculated by the
+	 * {@link PricingRule} set for all households.
 	 * 
 	 * @return the current demand price
 	 */
 	private double calcPricing(Need nd, Time time) {
-		// calc expected price as monthly budget divided by monthly consumption
-		final double expectedPrice=(double) getState().getBudget(nd)/getConsumption(nd,Time.DAYS_PER_MONTH);
 		// calc urgency factor as remaining consumption divided by consumption per activation period
-		final double eUrg=(double) getState().getNeedLevel(nd)/getConsumption(nd,nd.getActivationDays());
+		final double eUrg=(double) getState().getNeedLevel(nd)/getActivationLevel(nd);
 		// calc internal security factor as ratio of remaining money vs. remaining time
 		final double moneyRatio=(double) getState().getMoney().getValue()/getState().getTotalBudget();
-		final double remainingTicks=(getState().getBudgetPeriodStart().getTicks()+Time.TICKS_PER_MONTH-time.getTicks());
+		final double remainingTicks=(getState().getBudgetPeriodStart()+Time.TICKS_PER_MONTH-time.getTicks());
 		final double timeRatio=remainingTicks/Time.TICKS_PER_MONTH;
 		final double eInt=moneyRatio/timeRatio;
-		// set external security factor as economic growth forecast
-		final double eExt=Model.getInstance().getEconomicGrowth();
-		// set personal security factor to an individual constant representing the agent's personality trait
-		final double ePers=getState().getExtraversion(); // [0.5;1.5]
-		// calc modifying factor as geometric mean of the four factors above
-		final double modifier=FastMath.pow(eUrg*eInt*eExt*ePers,0.25); //x^0.25=(x^0.5)^0.5 
-		return expectedPrice*modifier; // price multiplied with percental change modifiers
+		// external security factor (economic growth) and personal trait (extraversion) are constant
+		return pricingRule.calcPrice(getState().getExpectedPrice(nd),eUrg,eInt,getState().getPricingConstant());
 	}
 
 	/**
 	 * Plans budget for a one month period
+	 * <p>
+	 * Needs are traversed in the precomputed order of the need plan, prices are taken from the domain's price snapshot.
+	 * Does not schedule the next planning, so it can also be called on its own, e.g. by benchmarks.
 	 */
-	private void planBudget(Time time) {
-		getState().setBudgetPeriodStart(time);
+	void planBudget(Time time) {
+		getState().setBudgetPeriodStart(time.getTicks());
 		long total=getState().getMoney().getValue();
 		getState().setTotalBudget(total);
-		for (URGENCY urgency : URGENCY.values()) { // traverse need hierarchy from bottom to top
-			for (Need need : getUrgencySet(urgency)) { // traverse all needs of a level
-				if (total>0) {
-					// calc with local market pricing
-					final double price=getDomain().getGoodsMarket().getPrice(need.getSatisfier());
-					int budget=(int) (price*getConsumption(need,Time.DAYS_PER_MONTH));
-					// fall back: without a valid market price calc with equal budget share for all needs 
-					if (price<=0) budget=(int) (getState().getTotalBudget()/Model.getInstance().getNeeds().size());
-					if (total<budget) budget=(int) total; // adjust if out of budget 
-					total-=budget;
-					getState().setBudget(need,budget);
-					setUrgency(urgency); // save highest urgency level possible to achieve
-				} 
-				else { // insufficient funds, disable need for this budget period
-					getState().setBudget(need,0);
-					getState().setNeedLevel(need,0);
-				}
+		final double[] prices=getDomain().getNeedPrices(time.getTicks());
+		for (int pos=0; pos<planNeeds.length; pos++) { // traverse need hierarchy from bottom to top
+			final Need need=planNeeds[pos];
+			if (total>0) {
+				// calc with local market pricing
+				final double price=prices[planIndex[pos]];
+				int budget=(int) (price*getConsumption(need,Time.DAYS_PER_MONTH));
+				// fall back: without a valid market price calc with equal budget share for all needs 
+				if (price<=0) budget=(int) (getState().getTotalBudget()/planNeeds.length);
+				if (total<budget) budget=(int) total; // adjust if out of budget 
+				total-=budget;
+				getState().setBudget(need,budget);
+				getState().setUrgencyLevel(planUrgency[pos]); // save highest urgency level possible to achieve
+			} 
+			else { // insufficient funds, disable need for this budget period
+				getState().setBudget(need,0);
+				getState().setNeedLevel(need,0);
 			}
 		}
-		enqueueEvent(EVENT.planBudget,time.add(BUDGET_PERIOD));
+		getState().updatePricing();
 	}
 
-	private URGENCY getUrgency() { return URGENCY.values()[getState().getUrgencyLevel()]; }
+	/**
+	 * Switches coalesced need scheduling on or off, see class description.
+	 * <p>
+	 * Has to be set BEFORE the households are created.
+	 *
+	 * @param value {@code true} for one wake-up per household and day for all due needs
+	 */
+	public static void setCoalescedScheduling(boolean value) { coalescedScheduling=value; }
+
+	public static boolean isCoalescedScheduling() { return coalescedScheduling; }
+
+	/**
+	 * Sets the rule calculating the demand prices of all households, {@link GeometricMeanPricing} by default.
+	 * <p>
+	 * Has to be set before starting the simulation.
+	 *
+	 * @param rule the pricing rule
+	 */
+	public static void setPricingRule(PricingRule rule) { pricingRule=rule; }
 
-	private void setUrgency(URGENCY value) { getState().setUrgencyLevel(value.ordinal()); }
+	public static PricingRule getPricingRule() { return pricingRule; }
+
+	private URGENCY getUrgency() { return URGENCY.values()[getState().getUrgencyLevel()]; }
 	
 	private int getConsumption(Need nd, int days) {
-		final int consumption=nd.getDailyConsumptionAdult()*getState().getAdults()
-				+nd.getDailyConsumptionChild()*getState().getChildren();
 		// if (nd.getType()==TYPE.FIXED) return consumption;
-		return consumption*days;
+		return getState().getDailyConsumption(nd)*days; // daily consumption is kept up-to-date by the state
 	}		
 
 	@Override
@@ -219,14 +408,19 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 		activation_event_limit, // marker event, do not change position or delete!
 
 		// other events
-		planBudget, applyForJob;
+		planBudget, applyForJob,
+
+		activateNeeds; // wake-up for all due needs, coalesced scheduling only
 
 	}
 
 	public static final int MAX_NEEDS=EVENT.activation_event_limit.ordinal();
 
-	/* map each urgency level to its corresponding subset of need definitions */
-	private static final EnumMap<URGENCY, Set<Need>> mappingUrgency2Need=new EnumMap<>(URGENCY.class);
+	/* need plan: all needs ordered by urgency level from bottom to top, then by index, frozen by initNeedMap */
+	private static Need[] planNeeds=new Need[0];
+
+	/* need index and urgency level ordinal of each need of the need plan */
+	private static int[] planIndex=new int[0], planUrgency=new int[0];
 
 	/* map activation event to need definition */
 	private static final Map<EVENT, Need> mappingEvent2Need=new EnumMap<>(EVENT.class);
@@ -241,14 +435,10 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 	 */
 	public static void initNeedMap(Collection<Need> needSet) {
 		if (needSet.size()>=MAX_NEEDS) throw new IndexOutOfBoundsException("Need set contains too many need definitions!");
-		mappingUrgency2Need.clear();
 		mappingEvent2Need.clear();
 		mappingConsumable2Need.clear();
-		for (URGENCY urgency : URGENCY.values()) mappingUrgency2Need.put(urgency,new HashSet<Need>());
 		int index=0; // init mappings
 		for (Need need : needSet) {
-			// map need urgency level
-			mappingUrgency2Need.get(need.getUrgency()).add(need);
 			// bi-map activation event to need definition
 			final EVENT activation=EVENT.values()[index];
 			mappingEvent2Need.put(activation,need);
@@ -260,9 +450,25 @@ public final class Household extends AbstractBasicAgent<HouseholdState, Househol
 			mappingConsumable2Need.put(satisfier,need);
 			index++;
 		}
+		// freeze need plan
+		final Need[] plan=needSet.toArray(new Need[needSet.size()]);
+		Arrays.sort(plan,
+				Comparator.comparingInt((Need need) -> need.getUrgency().ordinal()).thenComparingInt(Need::getIndex));
+		final int[] indices=new int[plan.length], urgency=new int[plan.length];
+		for (int pos=0; pos<plan.length; pos++) {
+			indices[pos]=plan[pos].getIndex();
+			urgency[pos]=plan[pos].getUrgency().ordinal();
+		}
+		planNeeds=plan;
+		planIndex=indices;
+		planUrgency=urgency;
 	}
 
-	static Set<Need> getUrgencySet(URGENCY urgency) { return mappingUrgency2Need.get(urgency); }
+	/** @return the need index of each position of the need plan, must not be changed */
+	static int[] getPlanIndex() { return planIndex; }
+
+	/** @return the urgency level ordinal of each position of the need plan, must not be changed */
+	static int[] getPlanUrgency() { return planUrgency; }
 
 	private static Need mapConsumable2Need(Good good) {
 		return mappingConsumable2Need.get(good);
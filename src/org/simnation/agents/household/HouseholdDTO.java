@@ -12,7 +12,11 @@ package org.simnation.agents.household;
 
 import org.simnation.agents.business.Money;
 import org.simnation.context.geography.Region;
+import org.simnation.model.Model;
 import org.simnation.persistence.DataTransferObject;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -29,7 +33,7 @@ import jakarta.persistence.OneToOne;
  *
  */
 @Entity
-public class HouseholdDTO implements DataTransferObject<HouseholdState> {
+public class HouseholdDTO implements DataTransferObject<HouseholdState>, Snapshotable {
 
 	@Id
 	@GeneratedValue(strategy=GenerationType.SEQUENCE)
@@ -47,10 +51,10 @@ public class HouseholdDTO implements DataTransferObject<HouseholdState> {
 	
 	@Override
 	public void convertDTO2State(HouseholdState state) {
-		state.adults=getAdults();
-		state.children=getChildren();
-		state.money=new Money(getCash());
-		state.extraversion=getExtraversion();
+		state.setAdults(getAdults());
+		state.setChildren(getChildren());
+		state.setMoney(new Money(getCash()));
+		state.setExtraversion(getExtraversion());
 	}
 	
 	@Override
@@ -61,6 +65,26 @@ public class HouseholdDTO implements DataTransferObject<HouseholdState> {
 		extraversion=state.getExtraversion();
 	 }
 
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		out.putInt(adults);
+		out.putInt(children);
+		out.putLong(cash);
+		out.putFloat(extraversion);
+	}
+
+	/**
+	 * Reads the household's constant data. Need levels are set to zero, they are restored by the household itself.
+	 */
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		adults=in.getInt();
+		children=in.getInt();
+		cash=in.getLong();
+		extraversion=in.getFloat();
+		needLevel=new float[Model.getInstance().getNeeds().size()];
+	}
+
 	public Money getMoney() { return new Money(cash); }
 
 	public long getCash() { return cash; }
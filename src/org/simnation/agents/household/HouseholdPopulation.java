@@ -0,0 +1,180 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event
+ * simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors: - Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.agents.household;
+
+import java.util.Arrays;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Money;
+import org.simnation.context.technology.Good;
+import org.simnation.model.Model;
+
+/**
+ * Columnar store (structure of arrays) for the states of a household population.
+ * <p>
+ * Each state variable is kept in a flat primitive array indexed by the household's row. Per-need variables (budget,
+ * need level) are stored row by row, so all needs of a household lie next to each other. Households access their row
+ * via a {@link ColumnarHouseholdState}. Compared to one state object per household, this keeps the data of the whole
+ * population in a few contiguous arrays, which is cache-friendly and allows to take a snapshot by bulk copy.
+ * <p>
+ * The household's {@link Money} stays an object, since it is handed over to other agents during trading. Its value is
+ * copied to the cash column when a snapshot is taken.
+ * <p>
+ * Note: Rows may only be added by one thread at a time, typically during model initialization.
+ */
+public final class HouseholdPopulation {
+
+	private static final int INITIAL_CAPACITY=1024;
+
+	private final int needs; // number of needs, i.e. the length of a row in per-need columns
+	private int size=0;
+
+	// set during initialization
+	int[] adults, children;
+	float[] extraversion;
+	long[] cash; // value of the money, only up-to-date in snapshots
+	Money[] money; // null in snapshots
+
+	// set at during simulation
+	long[] budgetPeriodStart, totalBudget;
+	int[] urgencyLevel;
+	int[] budget, needLevel; // per need, index is row*needs+need
+	Demand<Good>[] orders; // per need, null in snapshots
+	long[] dueTick; // per need, coalesced need scheduling only
+
+	// derived from the household's composition
+	int[] consumption, activationLevel, frustrationLevel; // per need, index is row*needs+need
+
+	// derived from budget and composition
+	double[] expectedPrice; // per need
+	double[] pricingConstant;
+
+	public HouseholdPopulation(int capacity) {
+		this(Model.getInstance().getNeeds().size(),Math.max(1,capacity));
+	}
+
+	public HouseholdPopulation() {
+		this(INITIAL_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	private HouseholdPopulation(int needCount, int capacity) {
+		needs=needCount;
+		adults=new int[capacity];
+		children=new int[capacity];
+		extraversion=new float[capacity];
+		cash=new long[capacity];
+		money=new Money[capacity];
+		budgetPeriodStart=new long[capacity];
+		totalBudget=new long[capacity];
+		urgencyLevel=new int[capacity];
+		budget=new int[capacity*needs];
+		needLevel=new int[capacity*needs];
+		orders=new Demand[capacity*needs];
+		dueTick=new long[capacity*needs];
+		consumption=new int[capacity*needs];
+		activationLevel=new int[capacity*needs];
+		frustrationLevel=new int[capacity*needs];
+		expectedPrice=new double[capacity*needs];
+		pricingConstant=new double[capacity];
+	}
+
+	/**
+	 * Adds a new row to the population and returns a state object accessing this row.
+	 *
+	 * @return the state of the new household
+	 */
+	HouseholdState createState() {
+		if (money==null) throw new IllegalStateException("HouseholdPopulation: cannot add rows to a snapshot!");
+		if (size==adults.length) grow(size<<1);
+		return new ColumnarHouseholdState(this,size++);
+	}
+
+	/**
+	 * Takes a snapshot of the whole population.
+	 * <p>
+	 * The snapshot is a detached copy of all primitive columns, including the current cash of each household. It
+	 * does not reference any money or demand of the running simulation and cannot be extended by new rows.
+	 *
+	 * @return a snapshot of the population
+	 */
+	public HouseholdPopulation snapshot() {
+		if (money!=null) for (int row=0; row<size; row++) cash[row]=money[row].getValue();
+		final HouseholdPopulation result=new HouseholdPopulation(needs,0);
+		result.size=size;
+		result.adults=Arrays.copyOf(adults,size);
+		result.children=Arrays.copyOf(children,size);
+		result.extraversion=Arrays.copyOf(extraversion,size);
+		result.cash=Arrays.copyOf(cash,size);
+		result.money=null;
+		result.budgetPeriodStart=Arrays.copyOf(budgetPeriodStart,size);
+		result.totalBudget=Arrays.copyOf(totalBudget,size);
+		result.urgencyLevel=Arrays.copyOf(urgencyLevel,size);
+		result.budget=Arrays.copyOf(budget,size*needs);
+		result.needLevel=Arrays.copyOf(needLevel,size*needs);
+		result.orders=null;
+		result.dueTick=Arrays.copyOf(dueTick,size*needs);
+		result.consumption=Arrays.copyOf(consumption,size*needs);
+		result.activationLevel=Arrays.copyOf(activationLevel,size*needs);
+		result.frustrationLevel=Arrays.copyOf(frustrationLevel,size*needs);
+		result.expectedPrice=Arrays.copyOf(expectedPrice,size*needs);
+		result.pricingConstant=Arrays.copyOf(pricingConstant,size);
+		return result;
+	}
+
+	public int size() { return size; }
+
+	public int getNeedCount() { return needs; }
+
+	public boolean isSnapshot() { return money==null; }
+
+	public int getAdults(int row) { return adults[row]; }
+
+	public int getChildren(int row) { return children[row]; }
+
+	public float getExtraversion(int row) { return extraversion[row]; }
+
+	public long getCash(int row) {
+		if (money!=null) return money[row].getValue();
+		return cash[row];
+	}
+
+	public long getBudgetPeriodStart(int row) { return budgetPeriodStart[row]; }
+
+	public long getTotalBudget(int row) { return totalBudget[row]; }
+
+	public int getUrgencyLevel(int row) { return urgencyLevel[row]; }
+
+	public int getBudget(int row, int need) { return budget[row*needs+need]; }
+
+	public int getNeedLevel(int row, int need) { return needLevel[row*needs+need]; }
+
+	private void grow(int capacity) {
+		adults=Arrays.copyOf(adults,capacity);
+		children=Arrays.copyOf(children,capacity);
+		extraversion=Arrays.copyOf(extraversion,capacity);
+		cash=Arrays.copyOf(cash,capacity);
+		money=Arrays.copyOf(money,capacity);
+		budgetPeriodStart=Arrays.copyOf(budgetPeriodStart,capacity);
+		totalBudget=Arrays.copyOf(totalBudget,capacity);
+		urgencyLevel=Arrays.copyOf(urgencyLevel,capacity);
+		budget=Arrays.copyOf(budget,capacity*needs);
+		needLevel=Arrays.copyOf(needLevel,capacity*needs);
+		orders=Arrays.copyOf(orders,capacity*needs);
+		dueTick=Arrays.copyOf(dueTick,capacity*needs);
+		consumption=Arrays.copyOf(consumption,capacity*needs);
+		activationLevel=Arrays.copyOf(activationLevel,capacity*needs);
+		frustrationLevel=Arrays.copyOf(frustrationLevel,capacity*needs);
+		expectedPrice=Arrays.copyOf(expectedPrice,capacity*needs);
+		pricingConstant=Arrays.copyOf(pricingConstant,capacity);
+	}
+
+}
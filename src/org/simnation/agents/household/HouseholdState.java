@@ -10,63 +10,127 @@
  */
 package org.simnation.agents.household;
 
+import org.simnation.agents.business.Demand;
 import org.simnation.agents.business.Money;
-import org.simnation.agents.household.Need.URGENCY;
+import org.simnation.context.technology.Good;
 import org.simnation.model.Model;
 import org.simplesim.core.scheduling.Time;
 import org.simplesim.model.State;
 
-public class HouseholdState implements State {
+/**
+ * State of a {@link Household}.
+ * <p>
+ * The state variables can either be kept in the state object itself ({@link DefaultHouseholdState}) or in a row of a
+ * columnar store holding the states of a whole population ({@link ColumnarHouseholdState}). The household only uses
+ * the accessors declared here, so it works with both representations.
+ * <p>
+ * The consumption of each need and the resulting activation and frustration levels only depend on the household's
+ * composition. They are kept in a per-need table that is recalculated whenever the number of adults or children
+ * changes, see {@link #updateConsumption()}.
+ * <p>
+ * The constant parts of the demand pricing are cached as well: the expected price of each need and the product of the
+ * household's constant factors. They are recalculated after each budget planning, see {@link #updatePricing()}.
+ */
+public abstract class HouseholdState implements State {
 
 	// set during initialization
-	int adults, children;
-	
-	Money money;
-	float extraversion;
+
+	abstract Money getMoney();
+
+	abstract void setMoney(Money value);
+
+	abstract int getAdults();
+
+	abstract void setAdults(int value);
+
+	abstract int getChildren();
+
+	abstract void setChildren(int value);
+
+	abstract float getExtraversion();
+
+	abstract void setExtraversion(float value);
 
 	// set at during simulation
-	private Time budgetPeriodStart;
-	private long totalBudget;
-	private final int budget[]; // budgets per need
-	private final int needLevel[]; // saturation
-	private int urgencyLevel;
 
+	abstract int getUrgencyLevel();
 
-	public HouseholdState() {
-		budget=new int[Model.getInstance().getNeeds().size()];
-		needLevel=new int[Model.getInstance().getNeeds().size()];
-	}
+	abstract void setUrgencyLevel(int value);
+
+	abstract long getTotalBudget();
+
+	abstract void setTotalBudget(long value);
+
+	abstract int getBudget(Need nd);
 
-	Money getMoney() { return money; }
+	abstract void setBudget(Need nd, int value);
 
-	int getAdults() { return adults; }
+	abstract int getNeedLevel(Need nd);
 
-	int getChildren() { return children; }
+	abstract void setNeedLevel(Need nd, int value);
 
-	float getExtraversion() { return extraversion; }
+	abstract void decreaseNeedLevel(Need nd, int value);
 
-	int getUrgencyLevel() { return urgencyLevel; }
+	abstract void increaseNeedLevel(Need nd, int value);
 
-	void setUrgencyLevel(int value) { urgencyLevel=value; }
+	abstract Demand<Good> getOrder(Need nd);
 
-	long getTotalBudget() { return totalBudget; }
+	abstract void setOrder(Need nd, Demand<Good> value);
 
-	void setTotalBudget(long value) { totalBudget=value; }
+	/** @return start of the current budget period in ticks */
+	abstract long getBudgetPeriodStart();
 
-	int getBudget(Need nd) { return budget[nd.getIndex()]; }
+	abstract void setBudgetPeriodStart(long ticks);
 
-	void setBudget(Need nd, int value) { budget[nd.getIndex()]=value; }
+	/** @return the tick the need is due next, only used with coalesced need scheduling */
+	abstract long getDueTick(Need nd);
 
-	int getNeedLevel(Need nd) { return needLevel[nd.getIndex()]; }
+	abstract void setDueTick(Need nd, long ticks);
 
-	void setNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]=value; }
-	
-	void decreaseNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]-=value; }
-	
-	void increaseNeedLevel(Need nd, int value) { needLevel[nd.getIndex()]+=value; }
-	
-	Time getBudgetPeriodStart() { return budgetPeriodStart; }
+	// derived from the household's composition
 
-	void setBudgetPeriodStart(Time value) { budgetPeriodStart = value; }
+	/** @return the household's consumption of a need per day */
+	abstract int getDailyConsumption(Need nd);
+
+	/** @return consumption during the need's activation period */
+	abstract int getActivationLevel(Need nd);
+
+	/** @return consumption during the need's activation and frustration period */
+	abstract int getFrustrationLevel(Need nd);
+
+	abstract void setConsumption(Need nd, int daily, int activation, int frustration);
+
+	// derived from budget and composition
+
+	/** @return the need's monthly budget divided by its monthly consumption */
+	abstract double getExpectedPrice(Need nd);
+
+	abstract void setExpectedPrice(Need nd, double value);
+
+	/** @return product of the constant pricing factors, i.e. economic growth and extraversion */
+	abstract double getPricingConstant();
+
+	abstract void setPricingConstant(double value);
+
+	/**
+	 * Recalculates the consumption table of all needs, has to be called on each change of the household's composition.
+	 */
+	void updateConsumption() {
+		for (Need need : Model.getInstance().getNeeds()) {
+			final int daily=need.getDailyConsumptionAdult()*getAdults()+need.getDailyConsumptionChild()*getChildren();
+			setConsumption(need,daily,daily*need.getActivationDays(),
+					daily*(need.getActivationDays()+need.getFrustrationDays()));
+		}
+		updatePricing();
+	}
+
+	/**
+	 * Recalculates the cached pricing factors, has to be called after each budget planning.
+	 */
+	void updatePricing() {
+		setPricingConstant(Model.getInstance().getEconomicGrowth()*getExtraversion());
+		for (Need need : Model.getInstance().getNeeds())
+			setExpectedPrice(need,(double) getBudget(need)/(getDailyConsumption(need)*Time.DAYS_PER_MONTH));
+	}
 
-}
\ No newline at end of file
+}
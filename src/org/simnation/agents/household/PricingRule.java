@@ -0,0 +1,31 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.household;
+
+/**
+ * Rule calculating the price a household offers for the satisfier of a need.
+ * <p>
+ * All factors are passed as primitives: the ones that change with each need activation and the constant part, which
+ * the household calculates once per budget period (see {@link HouseholdState#updatePricing()}). Rules are called on
+ * every need activation and shared by all households, so implementations have to be stateless.
+ *
+ * @see Household#setPricingRule(PricingRule)
+ */
+public interface PricingRule {
+
+	/**
+	 * Calculates the demand price.
+	 *
+	 * @param expectedPrice the need's monthly budget divided by its monthly consumption
+	 * @param urgency       remaining need level relative to the activation level
+	 * @param security      remaining money relative to the total budget, divided by the remaining time relative to the
+	 *                      budget period
+	 * @param constant      product of the household's constant factors, i.e. economic growth and extraversion
+	 * @return the price the household is willing to pay per unit
+	 */
+	double calcPrice(double expectedPrice, double urgency, double security, double constant);
+
+}
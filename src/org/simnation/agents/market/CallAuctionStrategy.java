@@ -0,0 +1,147 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Supply;
+import org.simnation.agents.market.Market.PriceVolumeDataPoint;
+
+/**
+ * Sealed-bid call auction strategy based on cumulative supply and demand curves.
+ * <p>
+ * All prices of a clearing are collected, sorted and reduced to distinct price levels. Quantities are accumulated per
+ * level, so the cumulative demand (all demand willing to pay at least the level's price) and the cumulative supply
+ * (all supply willing to sell at most the level's price) are step curves in primitive arrays. The clearing price is
+ * found in one pass over the levels as the price with the highest executable volume. Ties are broken by the lowest
+ * imbalance between both curves; if there are still several levels, the average of the lowest and highest is taken.
+ * <p>
+ * Orders priced better than the marginal price level of their side are filled completely. Orders at the marginal price level share the
+ * remaining volume pro-rata to their quantity, so fills do not depend on the order of the lists. Remaining units due to
+ * rounding are handed out one by one. Finally, the fills of demand and supply are paired and traded by the market's
+ * {@code trade} method at the clearing price.
+ * <p>
+ * Note: All working arrays are local to a clearing, so different market segments may be cleared concurrently.
+ *
+ */
+public class CallAuctionStrategy<T> implements MarketStrategy<T> {
+
+	@Override
+	public PriceVolumeDataPoint doMarketClearing(Market<T> market, List<Demand<T>> demand, List<Supply<T>> supply) {
+		if (supply.isEmpty()||demand.isEmpty()) return null; // check for empty lists
+		final int dsize=demand.size(), ssize=supply.size();
+
+		// collect prices and quantities into primitive arrays
+		final double[] askPrice=new double[dsize];
+		final long[] askQty=new long[dsize];
+		final double[] bidPrice=new double[ssize];
+		final long[] bidQty=new long[ssize];
+		double[] levels=new double[dsize+ssize];
+		for (int index=0; index<dsize; index++) {
+			final Demand<T> ask=demand.get(index);
+			levels[index]=askPrice[index]=ask.getMaxPrice();
+			askQty[index]=ask.getQuantity();
+		}
+		for (int index=0; index<ssize; index++) {
+			final Supply<T> bid=supply.get(index);
+			levels[dsize+index]=bidPrice[index]=bid.getPrice();
+			bidQty[index]=bid.getQuantity();
+		}
+		Arrays.sort(levels);
+		int count=0; // number of distinct price levels
+		for (int index=0; index<levels.length; index++)
+			if (count==0||levels[index]!=levels[count-1]) levels[count++]=levels[index];
+		levels=Arrays.copyOf(levels,count);
+
+		// accumulate quantities per level: cumulative demand from the top, cumulative supply from the bottom
+		final long[] cumDemand=new long[count+1]; // cumDemand[k]=demand with price>=levels[k], cumDemand[count]=0
+		final long[] cumSupply=new long[count+1]; // cumSupply[k+1]=supply with price<=levels[k], cumSupply[0]=0
+		for (int index=0; index<dsize; index++) cumDemand[Arrays.binarySearch(levels,askPrice[index])]+=askQty[index];
+		for (int index=0; index<ssize; index++) cumSupply[Arrays.binarySearch(levels,bidPrice[index])+1]+=bidQty[index];
+		for (int k=count-1; k>=0; k--) cumDemand[k]+=cumDemand[k+1];
+		for (int k=1; k<=count; k++) cumSupply[k]+=cumSupply[k-1];
+
+		// find the turnover-maximizing price level(s)
+		long volume=0, imbalance=Long.MAX_VALUE;
+		int first=-1, last=-1;
+		for (int k=0; k<count; k++) {
+			final long d=cumDemand[k], s=cumSupply[k+1];
+			final long v=Math.min(d,s), i=Math.abs(d-s);
+			if (v>volume||(v==volume&&v>0&&i<imbalance)) {
+				volume=v;
+				imbalance=i;
+				first=last=k;
+			} else if (v==volume&&v>0&&i==imbalance) last=k;
+		}
+		if (volume==0) return null; // demand and supply do not overlap
+		final double price=(levels[first]+levels[last])/2.0d;
+
+		// marginal levels: the worst price still needed on each side to reach the volume
+		int marginalAsk=last, marginalBid=first;
+		while (cumDemand[marginalAsk+1]>=volume) marginalAsk++;
+		while (cumSupply[marginalBid]>=volume) marginalBid--;
+
+		// allocate fills, orders at the marginal level share the rest pro-rata
+		allocate(askQty,askPrice,volume,levels[marginalAsk],true);
+		allocate(bidQty,bidPrice,volume,levels[marginalBid],false);
+
+		// pair fills of demand and supply and trade them
+		long traded=0;
+		int s=0;
+		long bidFill=bidQty[0];
+		for (int d=0; d<dsize; d++) {
+			long askFill=askQty[d];
+			while (askFill>0) {
+				while (bidFill==0) {
+					if (++s==ssize) return new PriceVolumeDataPoint(price,traded);
+					bidFill=bidQty[s];
+				}
+				final long amount=Math.min(askFill,bidFill);
+				final long quantity=market.trade(demand.get(d),supply.get(s),amount,price);
+				traded+=quantity;
+				bidFill-=quantity;
+				if (quantity<amount) break; // insufficient funds --> skip rest of this demand
+				askFill-=amount;
+			}
+		}
+		return new PriceVolumeDataPoint(price,traded);
+	}
+
+	/**
+	 * Replaces the quantities of one side of the market by the quantities filled at the clearing price.
+	 * <p>
+	 * Orders priced better than the marginal price are filled completely, orders at the marginal price share the rest
+	 * of the volume pro-rata, all other orders are not filled.
+	 *
+	 * @param qty      quantities of the orders, overwritten by the fills
+	 * @param prices   prices of the orders
+	 * @param volume   total volume to allocate
+	 * @param marginal marginal price level of this side
+	 * @param demand   {@code true} for the demand side (better means higher), {@code false} for the supply side
+	 */
+	private static void allocate(long[] qty, double[] prices, long volume, double marginal, boolean demand) {
+		long rest=volume, atMarginal=0;
+		for (int index=0; index<qty.length; index++) {
+			if (prices[index]==marginal) atMarginal+=qty[index];
+			else if (demand ? prices[index]>marginal : prices[index]<marginal) rest-=qty[index];
+			else qty[index]=0;
+		}
+		if (rest>=atMarginal) return; // marginal orders are filled completely
+		long remainder=rest;
+		for (int index=0; index<qty.length; index++) if (prices[index]==marginal) {
+			final long fill=(long) ((double) qty[index]*rest/atMarginal);
+			remainder-=fill;
+			qty[index]=fill;
+		}
+		for (int index=0; remainder>0; index=(index+1)%qty.length) if (prices[index]==marginal) { // rounding rest
+			qty[index]++;
+			remainder--;
+		}
+	}
+
+}
@@ -5,46 +5,159 @@
  */
 package org.simnation.agents.market;
 
+import java.util.List;
 import java.util.Set;
 
+import org.simnation.agents.AgentLog;
+import org.simnation.agents.AgentLog.Kind;
 import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.DemandBundle;
+import org.simnation.agents.business.Money;
 import org.simnation.agents.business.Supply;
+import org.simnation.agents.household.Household;
 import org.simnation.common.Batch;
 import org.simnation.context.technology.Good;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 
 /**
  *
  *
  */
-public final class GoodsMarketB2C extends Market<Good> {
+public final class GoodsMarketB2C extends Market<Good> implements Snapshotable {
 
 	/**
-	 * @param strat
-	 * @param segments
-	 * @param offset
-	 * @param p
+	 * Constructs a market using the clearing strategy configured in {@link MarketStrategyFactory}.
+	 * 
+	 * @param segments the goods traded on this market
 	 */
 	public GoodsMarketB2C(Set<Good> segments) {
-		super(segments,new SimpleDoubleAuctionStrategy<>());
+		super(segments,MarketStrategyFactory.create());
 	}
 
 	@Override
 	long trade(Demand<Good> demand, Supply<Good> supply, long amount, double price) {
+		final DemandBundle<Good> bundle=demand.getBundle();
+		if (bundle==null) return pay(demand,supply,amount,price);
+		synchronized (bundle) { // lines share their money and may be cleared concurrently
+			return pay(demand,supply,amount,price);
+		}
+	}
+
+	private long pay(Demand<Good> demand, Supply<Good> supply, long amount, double price) {
 		long cost=Math.round(price*amount);
 		long quantity=amount;
 		if (cost>demand.getMoney().getValue()) { // insufficient funds
 			quantity=(long) (demand.getMoney().getValue()/price); // round off
 			cost=Math.round(price*quantity);
 		}
-		log("\t market price: $"+Double.toString(price)+", demand: "+amount+",affordable: "+quantity+", cost: $"+cost);
-		Batch batch=((Batch) supply.getItem()).split(quantity);
-		batch.setValue(cost); // set to actual trading value --> the price is what others pay for it.
-		if (demand.getItem()==null) demand.setItem(batch);
-		else((Batch) demand.getItem()).merge(batch);
-		supply.getMoney().merge(demand.getMoney().split(cost));
+		if (AgentLog.isEnabled(Kind.TRADE))
+			AgentLog.record(Kind.TRADE,this,demand.getMarketSegment(),amount,quantity,cost,price);
+		if (quantity<=0) return 0; // nothing affordable
+		final Batch source=(Batch) supply.getItem();
+		if (demand.getItem()==null) {
+			final Batch batch=source.split(quantity);
+			batch.setValue(cost); // set to actual trading value --> the price is what others pay for it.
+			demand.setItem(batch);
+		} else ((Batch) demand.getItem()).transfer(source,quantity,cost); // no intermediate batch
+		supply.getMoney().transfer(demand.getMoney(),cost);
 		return quantity;
 	}
 	
+	/**
+	 * Writes market statistics, pending orders and events of all segments.
+	 * <p>
+	 * Recyclable demands are only referenced by their sender and segment, since they are restored by their household.
+	 * Bundled demands are written with their bundle after all segments, so the shared money is written only once.
+	 */
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		out.putInt(getState().getMarketSegments().size());
+		for (Good segment : getState().getMarketSegments()) {
+			out.putReference(segment);
+			getMarketData(segment).writeSnapshot(out);
+			final List<Demand<Good>> demandList=getState().getDemand(segment);
+			int count=0;
+			for (Demand<Good> demand : demandList) if (demand.getBundle()==null) count++;
+			out.putInt(count);
+			for (Demand<Good> demand : demandList) {
+				if (demand.getBundle()!=null) continue;
+				out.putIntArray(demand.getAddr());
+				out.putBoolean(demand.isRecyclable());
+				out.putInt(demand.getQuantity());
+				out.putDouble(demand.getMaxPrice());
+				out.putFloat(demand.getMinQuality());
+				out.putLong(demand.getMoney().getValue());
+			}
+			final List<Supply<Good>> supplyList=getState().getSupply(segment);
+			out.putInt(supplyList.size());
+			for (Supply<Good> supply : supplyList) {
+				out.putIntArray(supply.getAddr());
+				out.putDouble(supply.getPrice());
+				out.putLong(supply.getItem().getQuantity());
+				out.putLong(supply.getItem().getValue());
+				out.putFloat(supply.getItem().getQuality());
+			}
+		}
+		out.putInt(getState().getBundles().size());
+		for (DemandBundle<Good> bundle : getState().getBundles()) {
+			out.putIntArray(bundle.getAddr());
+			out.putLong(bundle.getMoney().getValue());
+			out.putInt(bundle.getLines().size());
+			for (Demand<Good> line : bundle.getLines()) {
+				out.putReference(line.getMarketSegment());
+				out.putInt(line.getQuantity());
+				out.putDouble(line.getMaxPrice());
+				out.putFloat(line.getMinQuality());
+			}
+		}
+		writeEvents(out);
+	}
+
+	/**
+	 * Restores market statistics, pending orders and events. The households of the market's domain have to be
+	 * restored before.
+	 */
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		for (int segments=in.getInt(); segments>0; segments--) {
+			final Good segment=in.getReference();
+			getMarketData(segment).readSnapshot(in);
+			for (int count=in.getInt(); count>0; count--) {
+				final int[] addr=in.getIntArray();
+				final boolean recyclable=in.getBoolean();
+				final int quantity=in.getInt();
+				final double price=in.getDouble();
+				final float quality=in.getFloat();
+				final Money money=new Money(in.getLong());
+				final Demand<Good> demand;
+				if (recyclable) { // restore the household's own demand as pending
+					demand=in.<Household>getEntity(addr).getOrder(segment);
+					demand.getMoney().merge(money);
+					demand.renew(quantity,price,quality);
+				} else demand=new Demand<>(addr,segment,quantity,price,quality,money);
+				addDemand(demand);
+			}
+			for (int count=in.getInt(); count>0; count--) {
+				final int[] addr=in.getIntArray();
+				final double price=in.getDouble();
+				final Batch batch=new Batch(segment,in.getLong(),in.getLong(),in.getFloat());
+				addSupply(new Supply<>(addr,batch,price));
+			}
+		}
+		for (int count=in.getInt(); count>0; count--) {
+			final int[] addr=in.getIntArray();
+			final Money money=new Money(in.getLong());
+			final int lines=in.getInt();
+			final DemandBundle<Good> bundle=new DemandBundle<>(addr,lines,money);
+			for (int line=0; line<lines; line++)
+				bundle.addLine(in.<Good>getReference(),in.getInt(),in.getDouble(),in.getFloat());
+			addBundle(bundle);
+		}
+		readEvents(in,Event.values());
+	}
+
 	@Override
 	public String getName() { return "GoodsMarketB2C"; }
 
@@ -5,13 +5,19 @@
  */
 package org.simnation.agents.market;
 
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.simnation.agents.AbstractBasicAgent;
+import org.simnation.agents.AgentLog;
+import org.simnation.agents.AgentLog.Kind;
 import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.DemandBundle;
 import org.simnation.agents.business.Supply;
 import org.simnation.context.technology.Good;
 import org.simplesim.core.messaging.RoutingMessage;
@@ -24,6 +30,13 @@ import org.simplesim.core.scheduling.Time;
  * of item that is traded on this market is indicated by the parameter T.
  * Methods that differ for different market types (supply, demand or stock
  * market) are encapsulated by the {@code MarketStrategy }.
+ * <p>
+ * Market segments are independent of each other, so they may optionally be cleared concurrently on a pool shared by
+ * all markets (see {@link #setClearingPool(ForkJoinPool)}). Unmatched orders are always returned after all segments
+ * have been cleared, in the fixed order of the segments, so the result does not depend on the clearing mode.
+ * <p>
+ * A {@link DemandBundle} is split into its lines, each added to the demand list of its segment. The bundle is returned
+ * as a whole after all segments have been cleared, so its sender gets one settlement message for all lines.
  *
  * @param <T> - type of traded items (characterizing market segments, e.g. Good,
  *            SkillSet)
@@ -40,15 +53,39 @@ public abstract class Market<T> extends AbstractBasicAgent<MarketState<T>, Marke
 	private static final Time MARKET_TIME=new Time(0,12,0); // be the second agent to start
 	private static final Time MARKET_PERIOD=Time.DAY;		// do market clearing every 12 hours
 
+	private static ForkJoinPool clearingPool=null; // pool for concurrent clearing of segments, sequential if null
+	private static MarketRecorder recorder=null; // records clearing results, nothing is recorded if null
+
 	private final MarketStrategy<T> strategy; // market clearing strategy
-	private final Set<T> marketSegments;
+	private final List<T> marketSegments; // fixed order of segments for clearing and returning orders
+	private final double[] clearedPrice, clearedVolume; // results of the actual clearing per segment, NaN if no trade
 
 	public Market(Set<T> ms, MarketStrategy<T> strat) {
 		super(new MarketState<T>(ms));
 		strategy=strat;
-		marketSegments=ms;
+		marketSegments=getState().getSegmentList();
+		clearedPrice=new double[marketSegments.size()];
+		clearedVolume=new double[marketSegments.size()];
 		enqueueEvent(Event.initMarket,MARKET_OFFSET);
 	}
+
+	/**
+	 * Sets the pool used by all markets to clear their segments concurrently.
+	 * <p>
+	 * Has to be set before starting the simulation.
+	 * 
+	 * @param pool the pool, {@code null} to clear segments sequentially
+	 */
+	public static void setClearingPool(ForkJoinPool pool) { clearingPool=pool; }
+
+	/**
+	 * Sets the recorder of all markets' clearing results.
+	 * <p>
+	 * Has to be set before starting the simulation.
+	 *
+	 * @param rec the recorder, {@code null} to record nothing
+	 */
+	public static void setRecorder(MarketRecorder rec) { recorder=rec; }
 	
 	public MarketData getMarketData(T segment) { return getState().getMarketData(segment); }
 
@@ -59,6 +96,8 @@ public abstract class Market<T> extends AbstractBasicAgent<MarketState<T>, Marke
 			addSupply((Supply<T>) msg.getContent());
 		else if (msg.getContent().getClass()==Demand.class)
 			addDemand((Demand<T>) msg.getContent());
+		else if (msg.getContent().getClass()==DemandBundle.class)
+			addBundle((DemandBundle<T>) msg.getContent());
 		else
 			throw new UnhandledMessageType(msg,this);
 	}
@@ -68,36 +107,82 @@ public abstract class Market<T> extends AbstractBasicAgent<MarketState<T>, Marke
 		if (event==Event.initMarket)
 			enqueueEvent(Event.clearMarket,MARKET_TIME);
 		else {
-			doMarketClearing();
+			doMarketClearing(time);
 			enqueueEvent(Event.clearMarket,time.add(MARKET_PERIOD));
 		}
 	}
 
-	private void doMarketClearing() {
-		for (T segment : marketSegments) {
-			final List<Demand<T>> demandList=getState().getDemand(segment);
-			final List<Supply<T>> supplyList=getState().getSupply(segment);
-			log("\tsupply list size="+supplyList.size());
-			log("\tdemand list size="+demandList.size());
-			final PriceVolumeDataPoint pvd=strategy.doMarketClearing(this,demandList,supplyList);
-			// update market statistics if there was some trade (=new data point)
-			if (pvd != null)
-				getMarketData(segment).update(pvd.price(), pvd.volume()); // this alteration should be thread save
-			// return unmatched demand and supply to agents
-			for (Demand<T> item : demandList)
-				sendMessage(getAddress(),item.getAddr(),item);
-			demandList.clear();
-			for (Supply<T> item : supplyList)
-				sendMessage(getAddress(),item.getAddr(),item);
-			supplyList.clear();
+	private void doMarketClearing(Time time) {
+		final ForkJoinPool pool=clearingPool;
+		if (pool==null||marketSegments.size()<2)
+			for (int index=0; index<marketSegments.size(); index++) clearSegment(index,time);
+		else { // clear all segments concurrently and wait for all of them
+			final List<ForkJoinTask<?>> tasks=new ArrayList<>(marketSegments.size());
+			for (int index=0; index<marketSegments.size(); index++) {
+				final int segment=index;
+				tasks.add(pool.submit(() -> clearSegment(segment,time)));
+			}
+			for (ForkJoinTask<?> task : tasks) task.join();
 		}
+		// update market statistics of all segments in one pass
+		getState().updateMarketData(clearedPrice,clearedVolume);
+		// the segments' order lists buffer all outgoing orders, flush them in segment order
+		for (T segment : marketSegments) returnOrders(segment);
+		// settle bundles after all their lines have been cleared
+		for (DemandBundle<T> bundle : getState().getBundles()) sendMessage(getAddress(),bundle.getAddr(),bundle);
+		getState().getBundles().clear();
 	}
 
-	private void addDemand(Demand<T> demand) {
+	/**
+	 * Clears a single segment. Segments are independent, so this method may be called concurrently for different
+	 * segments.
+	 */
+	private void clearSegment(int index, Time time) {
+		final T segment=marketSegments.get(index);
+		final List<Demand<T>> demandList=getState().getDemand(segment);
+		final List<Supply<T>> supplyList=getState().getSupply(segment);
+		final int demands=demandList.size(), supplies=supplyList.size();
+		final PriceVolumeDataPoint pvd=strategy.doMarketClearing(this,demandList,supplyList);
+		// market statistics are only updated if there was some trade (=new data point)
+		clearedPrice[index]=pvd==null ? Double.NaN : pvd.price();
+		clearedVolume[index]=pvd==null ? Double.NaN : pvd.volume();
+		if (AgentLog.isEnabled(Kind.SEGMENT_CLEARED)) AgentLog.record(Kind.SEGMENT_CLEARED,this,segment,demands,supplies,
+				pvd==null ? 0 : pvd.volume(),pvd==null ? Double.NaN : pvd.price());
+		final MarketRecorder rec=recorder;
+		if (rec!=null) rec.record(time.getTicks(),getDomainIndex(),segment,pvd==null ? Double.NaN : pvd.price(),
+				pvd==null ? 0 : pvd.volume(),demands,supplies);
+	}
+
+	/**
+	 * Returns unmatched demand and supply of a segment to agents.
+	 */
+	private void returnOrders(T segment) {
+		final List<Demand<T>> demandList=getState().getDemand(segment);
+		final List<Supply<T>> supplyList=getState().getSupply(segment);
+		// recyclable demands bring their own reply message, bundled demands are returned with their bundle
+		for (Demand<T> item : demandList) {
+			if (item.getBundle()!=null) continue;
+			if (item.isRecyclable()) sendMessage(item.getReplyMessage());
+			else sendMessage(getAddress(),item.getAddr(),item);
+		}
+		demandList.clear();
+		for (Supply<T> item : supplyList)
+			sendMessage(getAddress(),item.getAddr(),item);
+		supplyList.clear();
+	}
+
+	void addDemand(Demand<T> demand) {
+		strategy.addDemand(demand);
 		getState().getDemand(demand.getMarketSegment()).add(demand);
 	}
 
-	private void addSupply(Supply<T> supply) {
+	void addBundle(DemandBundle<T> bundle) {
+		for (Demand<T> line : bundle.getLines()) addDemand(line);
+		getState().getBundles().add(bundle);
+	}
+
+	void addSupply(Supply<T> supply) {
+		strategy.addSupply(supply);
 		getState().getSupply(supply.getMarketSegment()).add(supply);
 	}
 
@@ -5,7 +5,9 @@
  */
 package org.simnation.agents.market;
 
-import org.simnation.common.Statistics;
+import org.simnation.common.StatisticsBank;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
 
 /**
  * Class for providing general market information.
@@ -14,30 +16,39 @@ import org.simnation.common.Statistics;
  * They can be used by various agents to conclude their decisions.
  * <p>
  * {@code update} and {@code reset} should only be used by a market agent itself after market clearing.
+ * <p>
+ * The market data of a segment is a view of one series in the market's price and volume {@link StatisticsBank}, so
+ * all segments of a market can be updated in one pass, see {@link MarketState#updateMarketData(double[], double[])}.
  *
  */
 public final class MarketData {
 	
-	private final Statistics price=new Statistics();
-	private final Statistics volume=new Statistics();
+	private final StatisticsBank price;
+	private final StatisticsBank volume;
+	private final int index; // the segment's series in both banks
 	
+	MarketData(StatisticsBank prices, StatisticsBank volumes, int segment) {
+		price=prices;
+		volume=volumes;
+		index=segment;
+	}
 	
-	public double getPrice() { return price.getAVG(); }
+	public double getPrice() { return price.getAVG(index); }
 	
-	public double getLastPrice() { return price.getLastValue(); }
+	public double getLastPrice() { return price.getLastValue(index); }
 	
-	public double getPriceSTD() { return price.getSTD(); }
+	public double getPriceSTD() { return price.getSTD(index); }
 	
-	public double getPriceVAR() { return price.getVAR(); }
+	public double getPriceVAR() { return price.getVAR(index); }
 	
 	
-	public double getVolume() { return volume.getAVG(); }
+	public double getVolume() { return volume.getAVG(index); }
 	
-	public double getLastVolume() { return volume.getLastValue(); }
+	public double getLastVolume() { return volume.getLastValue(index); }
 	
-	public double getVolumeSTD() { return volume.getSTD(); }
+	public double getVolumeSTD() { return volume.getSTD(index); }
 	
-	public double getVolumeVAR() { return volume.getVAR(); }
+	public double getVolumeVAR() { return volume.getVAR(index); }
 	
 	
 	public double getTurnover() { return getPrice()*getVolume(); }
@@ -45,13 +56,23 @@ public final class MarketData {
 	/* part of restricted view */
 	
 	void update(double p, double v) { 
-		price.update(p);
-		volume.update(v); 
+		price.update(index,p);
+		volume.update(index,v); 
 	}
 	
+	void writeSnapshot(SnapshotWriter out) {
+		price.writeSnapshot(index,out);
+		volume.writeSnapshot(index,out);
+	}
+
+	void readSnapshot(SnapshotReader in) {
+		price.readSnapshot(index,in);
+		volume.readSnapshot(index,in);
+	}
+
 	void setValues(PriceVolumeDataPoint pvdp) {
-		price.reset(pvdp.getPriceAVG(),pvdp.getPriceVAR());
-		volume.reset(pvdp.getVolumeAVG(),pvdp.getVolumeVAR());
+		price.reset(index,pvdp.getPriceAVG(),pvdp.getPriceVAR());
+		volume.reset(index,pvdp.getVolumeAVG(),pvdp.getVolumeVAR());
 	}
 
 }
@@ -0,0 +1,127 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the market time series written by a {@link MarketRecorder}.
+ * <p>
+ * Rows are accessed by their index in order of recording. Only committed rows are visible, so a file may be read while
+ * the simulation is still recording into it. {@link #size()} returns the actual number of committed rows. Blocks are
+ * memory-mapped on demand, the last one accessed is kept.
+ */
+public final class MarketHistory implements AutoCloseable {
+
+	private final FileChannel channel;
+	private final MappedByteBuffer committed;
+	private final long dataOffset;
+	private final List<String> segments;
+
+	private long blockIndex=-1; // index of the mapped block
+	private ByteBuffer block=null;
+	private int blockRows=0;
+
+	/**
+	 * Opens a recording file for reading.
+	 *
+	 * @param file the file written by a {@link MarketRecorder}
+	 * @throws IOException if the file cannot be read or is no recording
+	 */
+	public MarketHistory(Path file) throws IOException {
+		channel=FileChannel.open(file,StandardOpenOption.READ);
+		final ByteBuffer prefix=ByteBuffer.allocate(MarketRecorder.SEGMENTS_POSITION);
+		while (prefix.hasRemaining()&&channel.read(prefix,prefix.position())>=0);
+		prefix.flip();
+		if (prefix.remaining()<MarketRecorder.SEGMENTS_POSITION||prefix.getInt()!=MarketRecorder.MAGIC)
+			throw new IOException("Not a market recording: "+file);
+		if (prefix.getInt()!=MarketRecorder.VERSION) throw new IOException("Unsupported recording version: "+file);
+		if (prefix.getInt()!=MarketRecorder.BLOCK_ROWS) throw new IOException("Unsupported block size: "+file);
+		dataOffset=prefix.getInt();
+		final MappedByteBuffer header=channel.map(FileChannel.MapMode.READ_ONLY,0,dataOffset);
+		final int count=header.getInt(MarketRecorder.SEGMENTS_POSITION);
+		header.position(MarketRecorder.SEGMENTS_POSITION+Integer.BYTES);
+		final List<String> names=new ArrayList<>(count);
+		for (int index=0; index<count; index++) {
+			final byte[] name=new byte[header.getInt()];
+			header.get(name);
+			names.add(new String(name,StandardCharsets.UTF_8));
+		}
+		segments=Collections.unmodifiableList(names);
+		committed=channel.map(FileChannel.MapMode.READ_ONLY,MarketRecorder.ROWS_POSITION,Long.BYTES);
+	}
+
+	/** @return number of rows committed so far */
+	public long size() { return committed.getLong(0); }
+
+	/** @return names of all segments, the segment column refers to this list */
+	public List<String> getSegments() { return segments; }
+
+	public long getTick(long row) { return seek(row).getLong(offset(row,0,Long.BYTES)); }
+
+	public int getRegion(long row) { return seek(row).getInt(offset(row,8,Integer.BYTES)); }
+
+	/** @return the segment's index in {@link #getSegments()}, negative if the segment was unknown to the recorder */
+	public int getSegmentIndex(long row) { return seek(row).getInt(offset(row,12,Integer.BYTES)); }
+
+	/** @return the segment's name or {@code null} if the segment was unknown to the recorder */
+	public String getSegment(long row) {
+		final int index=getSegmentIndex(row);
+		return index<0 ? null : segments.get(index);
+	}
+
+	/** @return the clearing price, {@code NaN} if there was no clearing */
+	public double getPrice(long row) { return seek(row).getDouble(offset(row,16,Double.BYTES)); }
+
+	public long getVolume(long row) { return seek(row).getLong(offset(row,24,Long.BYTES)); }
+
+	public int getDemandCount(long row) { return seek(row).getInt(offset(row,32,Integer.BYTES)); }
+
+	public int getSupplyCount(long row) { return seek(row).getInt(offset(row,36,Integer.BYTES)); }
+
+	@Override
+	public void close() throws IOException {
+		block=null;
+		channel.close();
+	}
+
+	/**
+	 * Position of a value within its block.
+	 *
+	 * @param row         the row
+	 * @param columnStart sum of the sizes of all preceding columns
+	 * @param size        size of a value of this column
+	 */
+	private int offset(long row, int columnStart, int size) {
+		return Integer.BYTES+columnStart*blockRows+(int) (row%MarketRecorder.BLOCK_ROWS)*size;
+	}
+
+	/** Maps the block containing the given row */
+	private ByteBuffer seek(long row) {
+		if (row<0||row>=size()) throw new IndexOutOfBoundsException("Row "+row+" not recorded");
+		final long index=row/MarketRecorder.BLOCK_ROWS;
+		if (index!=blockIndex) try {
+			final long position=dataOffset+index*MarketRecorder.BLOCK_BYTES;
+			final int rows=(int) Math.min(MarketRecorder.BLOCK_ROWS,size()-index*MarketRecorder.BLOCK_ROWS);
+			block=channel.map(FileChannel.MapMode.READ_ONLY,position,Integer.BYTES+(long) rows*MarketRecorder.ROW_BYTES);
+			blockRows=block.getInt(0);
+			blockIndex=index;
+		} catch (IOException exception) {
+			throw new IllegalStateException("Cannot read block "+index,exception);
+		}
+		return block;
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Records the result of each market clearing as time series in an append-only columnar file.
+ * <p>
+ * Each row consists of tick, region (domain index), market segment, price, volume and the number of demands and
+ * supplies. Rows are collected in blocks of primitive columns in memory. A full block is handed over to a writer
+ * thread that appends it to the file through a memory-mapped buffer. Recording only claims a row in the current block,
+ * so it never blocks the simulation and may be called by several threads at once.
+ * <p>
+ * Blocks are numbered in the order they are opened. A block may be filled after its successor if a recording thread
+ * stalls, so the writer holds back blocks until all earlier ones are written. Thus rows are stored in the order their
+ * blocks were opened.
+ * <p>
+ * File format: a header with the number of committed rows and the names of all segments, followed by the blocks. A
+ * block is the number of its rows followed by the columns. All blocks except the last hold {@link #BLOCK_ROWS} rows.
+ * The row count in the header is updated after each block, so the file can be read while it is being written, see
+ * {@link MarketHistory}.
+ */
+public final class MarketRecorder implements AutoCloseable {
+
+	static final int MAGIC=0x4D524543; // "MREC"
+	static final int VERSION=1;
+	static final int BLOCK_ROWS=4096;
+	/** bytes per row: tick, region, segment, price, volume, demands, supplies */
+	static final int ROW_BYTES=Long.BYTES+Integer.BYTES+Integer.BYTES+Double.BYTES+Long.BYTES+Integer.BYTES+Integer.BYTES;
+	static final int BLOCK_BYTES=Integer.BYTES+BLOCK_ROWS*ROW_BYTES;
+	/** header: magic, version, block rows, data offset, committed rows, segment count, segment names */
+	static final int ROWS_POSITION=4*Integer.BYTES;
+	static final int SEGMENTS_POSITION=ROWS_POSITION+Long.BYTES;
+
+	/** Block of rows kept in primitive columns */
+	private static final class Block {
+		final long sequence; // number of blocks opened before
+		final long[] tick=new long[BLOCK_ROWS];
+		final int[] region=new int[BLOCK_ROWS];
+		final int[] segment=new int[BLOCK_ROWS];
+		final double[] price=new double[BLOCK_ROWS];
+		final long[] volume=new long[BLOCK_ROWS];
+		final int[] demands=new int[BLOCK_ROWS];
+		final int[] supplies=new int[BLOCK_ROWS];
+		final AtomicInteger claimed=new AtomicInteger(); // rows handed out to recording threads
+		final AtomicInteger filled=new AtomicInteger(); // rows completely written
+
+		Block(long seq) {
+			sequence=seq;
+		}
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer committed; // row count in the header
+	private final long dataOffset;
+	private final Map<Object, Integer> segmentIndex=new HashMap<>(); // read-only after construction
+	private final AtomicReference<Block> current=new AtomicReference<>(new Block(0));
+	private final ExecutorService writer=Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread=new Thread(runnable,"MarketRecorder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// only accessed by the writer thread
+	private long blocks=0, rows=0;
+	private final Map<Long, Block> pending=new HashMap<>(); // blocks handed over before their predecessors
+	private volatile IOException failure=null;
+
+	/**
+	 * Creates a new recording file.
+	 *
+	 * @param file     the file, overwritten if it exists
+	 * @param segments all market segments to be recorded, identified by their {@code toString()} value in the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public MarketRecorder(Path file, Collection<?> segments) throws IOException {
+		channel=FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,StandardOpenOption.WRITE);
+		final byte[][] names=new byte[segments.size()][];
+		int size=SEGMENTS_POSITION+Integer.BYTES;
+		for (Object segment : segments) {
+			final int index=segmentIndex.size();
+			segmentIndex.put(segment,index);
+			names[index]=segment.toString().getBytes(StandardCharsets.UTF_8);
+			size+=Integer.BYTES+names[index].length;
+		}
+		dataOffset=size;
+		final ByteBuffer header=ByteBuffer.allocate(size);
+		header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_ROWS).putInt(size).putLong(0).putInt(names.length);
+		for (byte[] name : names) header.putInt(name.length).put(name);
+		header.flip();
+		while (header.hasRemaining()) channel.write(header,header.position());
+		committed=channel.map(FileChannel.MapMode.READ_WRITE,ROWS_POSITION,Long.BYTES);
+	}
+
+	/**
+	 * Records the result of a market clearing.
+	 * <p>
+	 * Never blocks and may be called concurrently.
+	 *
+	 * @param tick     simulation time in ticks
+	 * @param region   domain index of the market
+	 * @param segment  the market segment
+	 * @param price    clearing price, {@code NaN} if there was no clearing
+	 * @param volume   traded volume
+	 * @param demands  number of demands
+	 * @param supplies number of supplies
+	 */
+	public void record(long tick, int region, Object segment, double price, long volume, int demands, int supplies) {
+		final int id=segmentIndex.getOrDefault(segment,-1);
+		while (true) {
+			final Block block=current.get();
+			final int row=block.claimed.getAndIncrement();
+			if (row<BLOCK_ROWS) {
+				block.tick[row]=tick;
+				block.region[row]=region;
+				block.segment[row]=id;
+				block.price[row]=price;
+				block.volume[row]=volume;
+				block.demands[row]=demands;
+				block.supplies[row]=supplies;
+				// the thread completing the block hands it over
+				if (block.filled.incrementAndGet()==BLOCK_ROWS) writer.execute(() -> commit(block,BLOCK_ROWS));
+				return;
+			}
+			// block is full, only one thread installs the next one
+			current.compareAndSet(block,new Block(block.sequence+1));
+		}
+	}
+
+	/**
+	 * Writes the last block and waits until all blocks are written.
+	 * <p>
+	 * Has to be called after the simulation, when there are no more recordings.
+	 */
+	@Override
+	public void close() throws IOException {
+		final Block block=current.get();
+		final int count=block.filled.get();
+		if (count>0&&count<BLOCK_ROWS) writer.execute(() -> commit(block,count));
+		writer.shutdown();
+		try {
+			writer.awaitTermination(Long.MAX_VALUE,TimeUnit.NANOSECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		committed.force();
+		channel.close();
+		if (failure!=null) throw failure;
+	}
+
+	/**
+	 * Writes the given block and all blocks held back for it, holds it back if an earlier block is still missing.
+	 */
+	private void commit(Block block, int count) {
+		if (block.sequence!=blocks) {
+			pending.put(block.sequence,block);
+			return;
+		}
+		write(block,count);
+		for (Block next=pending.remove(blocks); next!=null; next=pending.remove(blocks)) write(next,next.filled.get());
+	}
+
+	private void write(Block block, int count) {
+		if (failure!=null) {
+			blocks++;
+			return;
+		}
+		try {
+			final MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_WRITE,dataOffset+blocks*BLOCK_BYTES,
+					Integer.BYTES+(long) count*ROW_BYTES);
+			buffer.putInt(count);
+			buffer.asLongBuffer().put(block.tick,0,count);
+			buffer.position(buffer.position()+count*Long.BYTES);
+			buffer.asIntBuffer().put(block.region,0,count).put(block.segment,0,count);
+			buffer.position(buffer.position()+2*count*Integer.BYTES);
+			buffer.asDoubleBuffer().put(block.price,0,count);
+			buffer.position(buffer.position()+count*Double.BYTES);
+			buffer.asLongBuffer().put(block.volume,0,count);
+			buffer.position(buffer.position()+count*Long.BYTES);
+			buffer.asIntBuffer().put(block.demands,0,count).put(block.supplies,0,count);
+			buffer.force();
+			blocks++;
+			rows+=count;
+			committed.putLong(0,rows); // publish the block
+		} catch (IOException exception) {
+			failure=exception;
+		}
+	}
+
+}
@@ -18,7 +18,9 @@ import java.util.Map;
 import java.util.Set;
 
 import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.DemandBundle;
 import org.simnation.agents.business.Supply;
+import org.simnation.common.StatisticsBank;
 import org.simplesim.model.State;
 
 /**
@@ -31,27 +33,50 @@ public class MarketState<T> implements State {
 
 	private final Map<T, List<Demand<T>>> demandMap = new IdentityHashMap<>();
 	private final Map<T, List<Supply<T>>> supplyMap = new IdentityHashMap<>();
+	private final List<DemandBundle<T>> bundleList = new ArrayList<>(); // bundles of the demands in the demand lists
 
 	private final Map<T, MarketData> statistics = new IdentityHashMap<>();
+	private final List<T> segmentList; // fixed order of segments, index of their series in the banks
+	private final StatisticsBank prices;
+	private final StatisticsBank volumes;
 
 	public MarketState(Set<T> segmentSet) {
-		for (T segment : segmentSet) {
+		segmentList=new ArrayList<>(segmentSet);
+		prices=new StatisticsBank(segmentList.size());
+		volumes=new StatisticsBank(segmentList.size());
+		for (int index=0; index<segmentList.size(); index++) {
+			final T segment=segmentList.get(index);
 			demandMap.put(segment, new ArrayList<>());
 			supplyMap.put(segment, new ArrayList<>());
-			statistics.put(segment,new MarketData());
+			statistics.put(segment,new MarketData(prices,volumes,index));
 		}
 	}
 
+	/**
+	 * Updates the market data of all segments in one pass.
+	 *
+	 * @param price  new price of each segment in order of {@link #getSegmentList()}, {@code NaN} if there was no trade
+	 * @param volume new volume of each segment, {@code NaN} if there was no trade
+	 */
+	void updateMarketData(double[] price, double[] volume) {
+		prices.update(price);
+		volumes.update(volume);
+	}
+
 	void setMarketData(T segment, PriceVolumeDataPoint pvdp) {
 		statistics.get(segment).setValues(pvdp);
 	}
 	
 	Set<T> getMarketSegments() { return statistics.keySet(); }
 
+	List<T> getSegmentList() { return segmentList; }
+
 	MarketData getMarketData(T segment) { return statistics.get(segment); }
 
 	List<Demand<T>> getDemand(T segment) { return demandMap.get(segment); }
 
 	List<Supply<T>> getSupply(T segment) { return supplyMap.get(segment); }
 
+	List<DemandBundle<T>> getBundles() { return bundleList; }
+
 }
@@ -31,4 +31,22 @@ interface MarketStrategy<T> {
 	 */
 	PriceVolumeDataPoint doMarketClearing(Market<T> market, List<Demand<T>> demand, List<Supply<T>> supply);
 
+	/**
+	 * Called for each demand arriving at the market, before it is added to the market's demand list.
+	 * <p>
+	 * Strategies may use this hook to maintain their own data structures incrementally.
+	 * 
+	 * @param demand the new demand
+	 */
+	default void addDemand(Demand<T> demand) {}
+
+	/**
+	 * Called for each supply arriving at the market, before it is added to the market's supply list.
+	 * <p>
+	 * Strategies may use this hook to maintain their own data structures incrementally.
+	 * 
+	 * @param supply the new supply
+	 */
+	default void addSupply(Supply<T> supply) {}
+
 }
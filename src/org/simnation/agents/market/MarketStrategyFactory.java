@@ -0,0 +1,60 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import org.simnation.main.Tools;
+
+/**
+ * Factory for the clearing strategies of the markets.
+ * <p>
+ * The strategy type has to be set at startup BEFORE the model is loaded, since every market gets its strategy within
+ * its constructor.
+ */
+public final class MarketStrategyFactory {
+
+	/** Available market clearing strategies */
+	public enum Type {
+		/** sorts demand and supply lists on each clearing, see {@link SimpleDoubleAuctionStrategy} */
+		DOUBLE_AUCTION,
+		/** keeps price sorted order books while orders arrive, see {@link OrderBookStrategy} */
+		ORDER_BOOK,
+		/** call auction on cumulative curves with pro-rata fills, see {@link CallAuctionStrategy} */
+		CALL_AUCTION;
+	}
+
+	private static Type type=Type.DOUBLE_AUCTION;
+
+	private MarketStrategyFactory() {}
+
+	public static Type getType() { return type; }
+
+	public static void setType(Type value) { type=value; }
+
+	/**
+	 * Parses the name of a strategy type, ignoring case.
+	 *
+	 * @param name name of the strategy type, e.g. {@code order_book}
+	 * @return the strategy type
+	 */
+	public static Type parseType(String name) {
+		return Tools.convertStringToEnum(name.toUpperCase(),Type.values());
+	}
+
+	/**
+	 * Creates a new clearing strategy of the configured type.
+	 *
+	 * @param <T> type characterizing market segments
+	 * @return a new market strategy
+	 */
+	static <T> MarketStrategy<T> create() {
+		switch (type) {
+		case ORDER_BOOK: return new OrderBookStrategy<>();
+		case CALL_AUCTION: return new CallAuctionStrategy<>();
+		default: return new SimpleDoubleAuctionStrategy<>();
+		}
+	}
+
+}
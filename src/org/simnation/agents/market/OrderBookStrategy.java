@@ -0,0 +1,235 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.simnation.agents.business.Demand;
+import org.simnation.agents.business.Supply;
+import org.simnation.agents.market.Market.PriceVolumeDataPoint;
+
+/**
+ * Double auction strategy based on order books that are kept sorted while orders arrive.
+ * <p>
+ * For each market segment, demand and supply are kept in two binary heaps of primitive prices (demand by descending,
+ * supply by ascending price). Each arriving order is inserted into its book in logarithmic time, so there is no need
+ * to sort the complete lists at clearing time. Clearing is done in a single pass over the books: Orders are taken from
+ * the top of the books only as long as demand and supply overlap. Each matched pair of demand and supply is recorded
+ * with its quantity, and the last pair yields the equilibrium price. Afterwards, all recorded matches are settled at
+ * this price. All remaining orders are never touched.
+ * <p>
+ * Pricing follows {@link SimpleDoubleAuctionStrategy}. The matched quantities are the remaining quantities of the
+ * orders while walking the books, so a demand is never filled beyond its quantity.
+ * <p>
+ * Note: Different market segments may be cleared concurrently.
+ *
+ */
+public class OrderBookStrategy<T> implements MarketStrategy<T> {
+
+	private static final int INITIAL_CAPACITY=64;
+
+	/** Binary heap of orders keyed by price, the best price is on top */
+	private static final class Book {
+
+		private final boolean descending;
+		private double[] prices=new double[INITIAL_CAPACITY];
+		private Object[] orders=new Object[INITIAL_CAPACITY];
+		private int size=0;
+
+		Book(boolean desc) {
+			descending=desc;
+		}
+
+		void add(Object order, double price) {
+			final double key=descending ? -price : price;
+			if (size==prices.length) {
+				prices=Arrays.copyOf(prices,size<<1);
+				orders=Arrays.copyOf(orders,size<<1);
+			}
+			int pos=size++;
+			while (pos>0) { // sift up
+				final int parent=(pos-1)>>>1;
+				if (prices[parent]<=key) break;
+				prices[pos]=prices[parent];
+				orders[pos]=orders[parent];
+				pos=parent;
+			}
+			prices[pos]=key;
+			orders[pos]=order;
+		}
+
+		Object poll() {
+			final Object result=orders[0];
+			final int last=--size;
+			final double key=prices[last];
+			final Object order=orders[last];
+			orders[last]=null;
+			int pos=0;
+			while (true) { // sift down
+				int child=(pos<<1)+1;
+				if (child>=last) break;
+				if (child+1<last&&prices[child+1]<prices[child]) child++;
+				if (key<=prices[child]) break;
+				prices[pos]=prices[child];
+				orders[pos]=orders[child];
+				pos=child;
+			}
+			if (last>0) {
+				prices[pos]=key;
+				orders[pos]=order;
+			}
+			return result;
+		}
+
+		boolean isEmpty() { return size==0; }
+
+		void clear() {
+			Arrays.fill(orders,0,size,null);
+			size=0;
+		}
+
+	}
+
+	/** Demand and supply book of a market segment together with the orders taken from it during clearing */
+	private static final class Segment {
+
+		final Book demandBook=new Book(true);
+		final Book supplyBook=new Book(false);
+		Object[] demandTaken=new Object[INITIAL_CAPACITY];
+		Object[] supplyTaken=new Object[INITIAL_CAPACITY];
+		int demandCount=0, supplyCount=0;
+		int[] matchDemand=new int[INITIAL_CAPACITY], matchSupply=new int[INITIAL_CAPACITY]; // indices of taken orders
+		long[] matchQuantity=new long[INITIAL_CAPACITY];
+		int matchCount=0;
+
+		/** @return the index-th best demand, taken from the book if necessary, or null if there is none */
+		Object demand(int index) {
+			if (index<demandCount) return demandTaken[index];
+			if (demandBook.isEmpty()) return null;
+			if (demandCount==demandTaken.length) demandTaken=Arrays.copyOf(demandTaken,demandCount<<1);
+			return demandTaken[demandCount++]=demandBook.poll();
+		}
+
+		/** @return the index-th best supply, taken from the book if necessary, or null if there is none */
+		Object supply(int index) {
+			if (index<supplyCount) return supplyTaken[index];
+			if (supplyBook.isEmpty()) return null;
+			if (supplyCount==supplyTaken.length) supplyTaken=Arrays.copyOf(supplyTaken,supplyCount<<1);
+			return supplyTaken[supplyCount++]=supplyBook.poll();
+		}
+
+		/** Records a match of the d-th demand and the s-th supply */
+		void match(int d, int s, long quantity) {
+			if (matchCount==matchQuantity.length) {
+				matchDemand=Arrays.copyOf(matchDemand,matchCount<<1);
+				matchSupply=Arrays.copyOf(matchSupply,matchCount<<1);
+				matchQuantity=Arrays.copyOf(matchQuantity,matchCount<<1);
+			}
+			matchDemand[matchCount]=d;
+			matchSupply[matchCount]=s;
+			matchQuantity[matchCount++]=quantity;
+		}
+
+		void clear() {
+			demandBook.clear();
+			supplyBook.clear();
+			Arrays.fill(demandTaken,0,demandCount,null);
+			Arrays.fill(supplyTaken,0,supplyCount,null);
+			demandCount=supplyCount=matchCount=0;
+		}
+
+	}
+
+	private final Map<T, Segment> segments=new IdentityHashMap<>();
+
+	@Override
+	public void addDemand(Demand<T> demand) {
+		getSegment(demand.getMarketSegment()).demandBook.add(demand,demand.getMaxPrice());
+	}
+
+	@Override
+	public void addSupply(Supply<T> supply) {
+		getSegment(supply.getMarketSegment()).supplyBook.add(supply,supply.getPrice());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public PriceVolumeDataPoint doMarketClearing(Market<T> market, List<Demand<T>> demand, List<Supply<T>> supply) {
+		if (supply.isEmpty()&&demand.isEmpty()) return null;
+		final T key=demand.isEmpty() ? supply.get(0).getMarketSegment() : demand.get(0).getMarketSegment();
+		final Segment segment=getSegment(key);
+		try {
+			if (supply.isEmpty()||demand.isEmpty()) return null; // check for empty lists
+			final double price=matchOrders(segment);
+			long volume=0;
+			for (int match=0; match<segment.matchCount; match++) // settle all matches at the equilibrium price
+				volume+=market.trade((Demand<T>) segment.demandTaken[segment.matchDemand[match]],
+						(Supply<T>) segment.supplyTaken[segment.matchSupply[match]],segment.matchQuantity[match],price);
+			return new PriceVolumeDataPoint(price,volume);
+		} finally { // all orders are returned by the market after clearing
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Matches demand and supply by taking orders from the top of the books as long as they overlap and calculates the
+	 * market's actual equilibrium price. Each match is recorded in the segment.
+	 * <p>
+	 * Note: The equilibrium price is calculated as average of the last supply and demand price.
+	 *
+	 * @param segment the books of the market segment
+	 * @return the equilibrium price
+	 */
+	private double matchOrders(Segment segment) {
+		int d=0, s=0;
+		Demand<?> ask=(Demand<?>) segment.demand(d); // check for empty list done before
+		Supply<?> bid=(Supply<?>) segment.supply(s); // check for empty list done before
+		long askQty=ask.getQuantity();
+		long bidQty=bid.getQuantity();
+		while (ask.getMaxPrice()>=bid.getPrice()) {
+			segment.match(d,s,Math.min(askQty,bidQty));
+			if (bidQty>askQty) {
+				bidQty-=askQty;
+				final Demand<?> next=(Demand<?>) segment.demand(d+1);
+				if (next==null) break; // demand completely satisfied --> exit
+				ask=next;
+				d++;
+				askQty=ask.getQuantity();
+			} else if (bidQty<askQty) {
+				askQty-=bidQty;
+				final Supply<?> next=(Supply<?>) segment.supply(s+1);
+				if (next==null) break; // supply completely sold --> exit
+				bid=next;
+				s++;
+				bidQty=bid.getQuantity();
+			} else { // askQty==bidQty
+				final Demand<?> nextAsk=(Demand<?>) segment.demand(d+1);
+				final Supply<?> nextBid=(Supply<?>) segment.supply(s+1);
+				if (nextAsk==null||nextBid==null) break; // supply and demand simultaneously cleared - this is rare!
+				ask=nextAsk;
+				bid=nextBid;
+				d++;
+				s++;
+				askQty=ask.getQuantity();
+				bidQty=bid.getQuantity();
+			}
+		}
+		return (bid.getPrice()+ask.getMaxPrice())/2.0d;// eq. price is average of last deal's bid and ask price
+	}
+
+	private synchronized Segment getSegment(T key) {
+		Segment result=segments.get(key);
+		if (result==null) {
+			result=new Segment();
+			segments.put(key,result);
+		}
+		return result;
+	}
+
+}
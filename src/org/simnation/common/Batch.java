@@ -15,7 +15,8 @@ import org.simnation.context.technology.Good;
  * A batch has a value and can be split and merged. It is traded on B2C- and
  * B2B-markets.
  * <p>
- * Note: This class is thread-safe
+ * Note: This class is not thread-safe, a batch has to be confined to one agent at a time, e.g. handed over by
+ * messages.
  * <p>
  *
  * @see Money
@@ -23,9 +24,9 @@ import org.simnation.context.technology.Good;
 public class Batch implements Tradable<Good>, Mergable<Batch> {
 
 	private final Good good;
-	private volatile long quantity; // in good units
-	private volatile long value; // in money units
-	private volatile float quality;
+	private long quantity; // in good units
+	private long value; // in money units
+	private float quality;
 
 	public Batch(Good g, long a, long v, float q) {
 		if (a<0) throw new IllegalArgumentException("Batch(): initial quantity negative!");
@@ -62,6 +63,30 @@ public class Batch implements Tradable<Good>, Mergable<Batch> {
 		return quantity;
 	}
 
+	/**
+	 * Moves an amount from another batch to this batch at a given value.
+	 * <p>
+	 * Equals merging a batch split from the source whose value has been set to {@code newValue}, but without
+	 * creating an intermediate batch.
+	 *
+	 * @param source   the batch to take the amount from
+	 * @param amount   the quantity to move
+	 * @param newValue the value of the moved quantity within this batch
+	 * @return the new quantity of this batch
+	 */
+	public long transfer(Batch source, long amount, long newValue) {
+		if (amount<0||amount>source.getQuantity())
+			throw new IllegalArgumentException("Batch.transfer(): value too large or negative!");
+		if (amount==0) return quantity;
+		source.value-=amount*source.getValue()/source.getQuantity(); // same integer division as in split
+		source.quantity-=amount;
+		final double sum=getQuantity()+amount;
+		quality=(float) ((getQuantity()*getQuality()+amount*source.getQuality())/sum);
+		quantity+=amount;
+		value+=newValue;
+		return quantity;
+	}
+
 	public long consume() {
 		final long result=getQuantity();
 		quantity=0;
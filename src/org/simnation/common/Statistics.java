@@ -11,6 +11,9 @@
 package org.simnation.common;
 
 import org.simnation.context.Limits;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simnation.persistence.Snapshotable;
 
 /**
  * Calculates mean and variance by exponential smoothing.
@@ -24,7 +27,7 @@ import org.simnation.context.Limits;
  *       <i>Incremental calculation of weighted mean and variance</i> by Tony Finch (2009)</a>
  * 
  */
-public final class Statistics {
+public final class Statistics implements Snapshotable {
 
 	private volatile double average;	// weighted average 
 	private volatile double variance;	// weighted variance
@@ -54,6 +57,20 @@ public final class Statistics {
 		variance=var;
 	}
 	
+	@Override
+	public void writeSnapshot(SnapshotWriter out) {
+		out.putDouble(average);
+		out.putDouble(variance);
+		out.putDouble(lastValue);
+	}
+
+	@Override
+	public void readSnapshot(SnapshotReader in) {
+		average=in.getDouble();
+		variance=in.getDouble();
+		lastValue=in.getDouble();
+	}
+
 	public double getLastValue() { return lastValue; }
 
 	public double getAVG() { return average; }
@@ -0,0 +1,130 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.common;
+
+import org.simnation.context.Limits;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+
+/**
+ * A fixed number of time series with mean and variance calculated by exponential smoothing, as done by
+ * {@link Statistics}.
+ * <p>
+ * Average, variance and last value of all series are kept in dense primitive arrays, each series is addressed by its
+ * index, e.g. the domain index of a market. The snapshot format of a series equals the one of {@link Statistics}.
+ * <p>
+ * All series can be updated in one pass by {@link #update(double[])}. This bulk update uses the JDK's Vector API if
+ * the simulator was built with the Maven profile {@code vector} and the module {@code jdk.incubator.vector} is
+ * available at runtime (JVM option {@code --add-modules jdk.incubator.vector}). It falls back to a plain loop otherwise
+ * or if the system property {@code simnation.vector} is {@code false}. Both give exactly the same results as single
+ * updates.
+ * <p>
+ * Note: This class is not thread-safe.
+ */
+public final class StatisticsBank {
+
+	/** Bulk update of the series' arrays, see {@link StatisticsBank#update(double[])} */
+	interface Kernel {
+		void update(double[] average, double[] variance, double[] lastValue, double[] values, int length);
+	}
+
+	private static final float alpha=Limits.DEFAULT_SMOOTHING_FACTOR; // exponential smoothing factor, see Statistics
+	static final double ALPHA=alpha;
+	static final double BETA=1.0f-alpha; // same float arithmetic as in Statistics
+	private static final Kernel KERNEL=createKernel();
+
+	private final double[] average; // weighted averages
+	private final double[] variance; // weighted variances
+	private final double[] lastValue; // last values of the time series
+
+	/**
+	 * Creates a bank of series, all with an initial average and variance of zero.
+	 *
+	 * @param size number of series
+	 */
+	public StatisticsBank(int size) {
+		average=new double[size];
+		variance=new double[size];
+		lastValue=new double[size];
+	}
+
+	public int size() { return average.length; }
+
+	public void update(int index, double value) {
+		final double diff=value-average[index];
+		final double incr=ALPHA*diff;
+		average[index]+=incr;
+		variance[index]=BETA*(variance[index]+diff*incr);
+		lastValue[index]=value;
+	}
+
+	/**
+	 * Updates all series at once.
+	 *
+	 * @param values the new value of each series, {@code NaN} to leave a series unchanged
+	 */
+	public void update(double[] values) {
+		if (values.length!=size()) throw new IllegalArgumentException("StatisticsBank.update(): wrong number of values!");
+		KERNEL.update(average,variance,lastValue,values,values.length);
+	}
+
+	public void reset(int index, double avg, double var) {
+		average[index]=lastValue[index]=avg;
+		variance[index]=var;
+	}
+
+	public void writeSnapshot(int index, SnapshotWriter out) {
+		out.putDouble(average[index]);
+		out.putDouble(variance[index]);
+		out.putDouble(lastValue[index]);
+	}
+
+	public void readSnapshot(int index, SnapshotReader in) {
+		average[index]=in.getDouble();
+		variance[index]=in.getDouble();
+		lastValue[index]=in.getDouble();
+	}
+
+	public double getLastValue(int index) { return lastValue[index]; }
+
+	public double getAVG(int index) { return average[index]; }
+
+	public double getVAR(int index) { return variance[index]; }
+
+	public double getSTD(int index) { return Math.sqrt(variance[index]); }
+
+	public float getSmoothingFactor() { return alpha; }
+
+	/**
+	 * Updates the series within {@code [from;to)} one by one, skipping {@code NaN} values.
+	 */
+	static void update(double[] average, double[] variance, double[] lastValue, double[] values, int from, int to) {
+		for (int index=from; index<to; index++) {
+			final double value=values[index];
+			if (Double.isNaN(value)) continue;
+			final double diff=value-average[index];
+			final double incr=ALPHA*diff;
+			average[index]+=incr;
+			variance[index]=BETA*(variance[index]+diff*incr);
+			lastValue[index]=value;
+		}
+	}
+
+	private static Kernel createKernel() {
+		// the vector kernel is only on the class path if built with the profile vector
+		if (!"false".equals(System.getProperty("simnation.vector"))
+				&&ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				return (Kernel) Class.forName("org.simnation.common.VectorStatisticsKernel").getDeclaredConstructor()
+						.newInstance();
+			} catch (ReflectiveOperationException|LinkageError exception) {
+				// fall back to the plain loop
+			}
+		}
+		return (average, variance, lastValue, values, length) -> update(average,variance,lastValue,values,0,length);
+	}
+
+}
@@ -10,13 +10,24 @@
  */
 package org.simnation.main;
 
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.simnation.agents.AgentLog;
+import org.simnation.agents.household.BudgetPlanner;
+import org.simnation.agents.household.Household;
+import org.simnation.agents.market.Market;
+import org.simnation.agents.market.MarketRecorder;
+import org.simnation.agents.market.MarketStrategyFactory;
 import org.simnation.model.Model;
 import org.simnation.persistence.DataAccessObject;
+import org.simnation.simulator.AgentProfiler;
+import org.simnation.simulator.DomainParallelDESimulator;
+import org.simnation.simulator.EventQueueFactory;
 import org.simplesim.core.messaging.MessageForwardingStrategy;
 import org.simplesim.core.messaging.RecursiveMessageForwarding;
 import org.simplesim.core.messaging.RoutingMessageForwarding;
 import org.simplesim.core.scheduling.EventQueue;
-import org.simplesim.core.scheduling.HeapEventQueue;
 import org.simplesim.core.scheduling.Time;
 import org.simplesim.model.Agent;
 import org.simplesim.simulator.SequentialDESimulator;
@@ -28,21 +39,157 @@ import org.simplesim.simulator.Simulator;
  */
 public class Main {
 
+	/**
+	 * Loads the model and starts a simulation run.
+	 * <p>
+	 * Options:
+	 * <ul>
+	 * <li>{@code -parallel[=n]} - run each regional domain in parallel on n workers (default: one per core)
+	 * <li>{@code -batch[=n]} - split the batch activation of households on n workers (default: one per core), implies
+	 * a partitioned simulation
+	 * <li>{@code -parallelload[=n]} - load and construct the agents of each region concurrently on n workers (default:
+	 * one per core)
+	 * <li>{@code -restore=file} - restore the model from a snapshot instead of loading the scenario's agents
+	 * <li>{@code -snapshot=file} - write a snapshot of the model at the end of the simulation run
+	 * <li>{@code -record=file} - record the results of all market clearings as time series, see
+	 * {@link org.simnation.agents.market.MarketHistory}
+	 * <li>{@code -columnar} - keep the households' states in a columnar store per domain
+	 * <li>{@code -coalesce} - wake up each household once a day for all due needs and bundle their demands
+	 * <li>{@code -populationbudget[=parallel]} - plan the budgets of all households of a domain in one pass, implies
+	 * {@code -columnar}, optionally split across the common fork-join pool
+	 * <li>{@code -clearing=type} - market clearing strategy, {@code double_auction} (default),
+	 * {@code order_book} or {@code call_auction}
+	 * <li>{@code -parallelclearing[=n]} - clear the segments of each market concurrently on n workers (default: one
+	 * per core)
+	 * <li>{@code -agentqueue=type} - event queue of the agents, {@code heap} (default), {@code calendar} or
+	 * {@code shared} (one primitive event index for all agents)
+	 * <li>{@code -globalqueue=type} - event queue of the simulator, {@code heap} (default) or {@code calendar}
+	 * <li>{@code -profile[=n]} - profile the agents, measuring times on every n-th activation (default: 64), results
+	 * are available via JMX. With {@code n=0}, profiling starts switched off and can be switched on via JMX.
+	 * <li>{@code -profilecsv=file} - append the profiling results to a CSV file every ten seconds and at the end
+	 * </ul>
+	 * Logging of the agents is switched on by the system property {@code simnation.log}, see {@link AgentLog}. The
+	 * records are listed after the simulation run.
+	 * 
+	 * @param args command line options
+	 */
 	public static void main(String[] args) {	
+		int workers=-1; // negative: sequential simulation
+		int batchWorkers=-1; // negative: no splitting of batches
+		int loadWorkers=-1; // negative: sequential model construction
+		Path restoreFile=null, snapshotFile=null, recordFile=null, profileFile=null;
+		boolean profiling=false; // register the profiler's MBean?
+		for (String arg : args) {
+			final String[] option=arg.split("=",2);
+			switch (option[0]) {
+			case "-parallel": workers=option.length>1 ? Integer.parseInt(option[1]) : 0; break;
+			case "-batch": batchWorkers=option.length>1 ? Integer.parseInt(option[1]) : 0; break;
+			case "-parallelload": loadWorkers=option.length>1 ? Integer.parseInt(option[1]) : 0; break;
+			case "-restore": restoreFile=Path.of(value(option,"file")); break;
+			case "-snapshot": snapshotFile=Path.of(value(option,"file")); break;
+			case "-record": recordFile=Path.of(value(option,"file")); break;
+			case "-columnar": Model.getInstance().setColumnarHouseholds(true); break;
+			case "-coalesce": Household.setCoalescedScheduling(true); break;
+			case "-populationbudget":
+				Model.getInstance().setColumnarHouseholds(true);
+				Model.getInstance().setPopulationBudgeting(true);
+				BudgetPlanner.setParallel(option.length>1&&option[1].equals("parallel"));
+				break;
+			case "-clearing":
+				MarketStrategyFactory.setType(MarketStrategyFactory.parseType(value(option,"type")));
+				break;
+			case "-parallelclearing":
+				Market.setClearingPool(option.length>1 ? new ForkJoinPool(Integer.parseInt(option[1])) : ForkJoinPool.commonPool());
+				break;
+			case "-agentqueue":
+				EventQueueFactory.setAgentQueueType(EventQueueFactory.parseType(value(option,"type")));
+				break;
+			case "-globalqueue":
+				EventQueueFactory.setGlobalQueueType(EventQueueFactory.parseType(value(option,"type")));
+				break;
+			case "-profile":
+				AgentProfiler.setSamplingInterval(option.length>1 ? Integer.parseInt(option[1]) : 64);
+				profiling=true;
+				break;
+			case "-profilecsv": profileFile=Path.of(value(option,"file")); break;
+			default: throw new IllegalArgumentException("Unknown option: "+arg);
+			}
+		}
 		// build model
+		Time start=Time.ZERO;
+		MarketRecorder recorder=null;
 		try {
 			final DataAccessObject dao=new DataAccessObject("Simulation");
-			Model.getInstance().load(dao);
+			if (restoreFile==null) Model.getInstance().load(dao,loadWorkers);
+			else start=Model.getInstance().restoreSnapshot(dao,restoreFile);
 			dao.close();
+			if (recordFile!=null) recorder=new MarketRecorder(recordFile,Model.getInstance().getConsumables());
+			Market.setRecorder(recorder);
 		} catch (Exception exception) {
 			exception.printStackTrace();
 			System.exit(3);
 		}
+		// start profiling
+		try {
+			if (profiling) AgentProfiler.registerMBean();
+			if (profileFile!=null) AgentProfiler.startCsvDump(profileFile,10);
+		} catch (Exception exception) {
+			exception.printStackTrace();
+		}
 		// start simulation
 		final MessageForwardingStrategy fs=new RecursiveMessageForwarding();
-		final EventQueue<Agent> eq=new HeapEventQueue<>();
-		final Simulator simulator=new SequentialDESimulator(Model.getInstance(),eq,fs);
-		simulator.runSimulation(Time.MONTH);
+		final EventQueue<Agent> eq=EventQueueFactory.createGlobalQueue();
+		final Simulator simulator;
+		if (workers<0&&batchWorkers<0) simulator=new SequentialDESimulator(Model.getInstance(),eq,fs);
+		else {
+			// batch activation only: partitioned simulation on a single worker
+			final DomainParallelDESimulator pds=new DomainParallelDESimulator(Model.getInstance(),fs,workers<0 ? 1 : workers);
+			if (batchWorkers==0) pds.setBatchPool(ForkJoinPool.commonPool());
+			else if (batchWorkers>0) pds.setBatchPool(new ForkJoinPool(batchWorkers));
+			simulator=pds;
+		}
+		simulator.runSimulation(start.add(Time.MONTH));
+		if (profileFile!=null) {
+			AgentProfiler.stopCsvDump();
+			AgentProfiler.dumpCsv(profileFile);
+		}
+		if (AgentLog.ENABLED) {
+			try {
+				AgentLog.dump(System.out);
+			} catch (Exception exception) {
+				exception.printStackTrace();
+			}
+		}
+		if (recorder!=null) {
+			try {
+				recorder.close();
+			} catch (Exception exception) {
+				exception.printStackTrace();
+			}
+		}
+		if (snapshotFile!=null) {
+			try {
+				Model.getInstance().saveSnapshot(snapshotFile,simulator.getSimulationTime());
+			} catch (Exception exception) {
+				exception.printStackTrace();
+				System.exit(4);
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of an option that requires one, prints a usage message and exits otherwise.
+	 *
+	 * @param option the option split into name and value
+	 * @param name name of the value in the usage message
+	 * @return the option's value
+	 */
+	private static String value(String[] option, String name) {
+		if (option.length<2||option[1].isEmpty()) {
+			System.err.println("Option "+option[0]+" needs a value, usage: "+option[0]+"="+name);
+			System.exit(1);
+		}
+		return option[1];
 	}
 
 }
@@ -11,6 +11,9 @@
 package org.simnation.model;
 
 
+import org.simnation.agents.household.BudgetPlanner;
+import org.simnation.agents.household.HouseholdPopulation;
+import org.simnation.agents.household.Need;
 import org.simnation.agents.market.GoodsMarketB2C;
 import org.simnation.context.geography.Region;
 import org.simplesim.model.BasicModelEntity;
@@ -31,8 +34,14 @@ import org.simplesim.model.RoutingDomain;
  */
 public final class Domain extends RoutingDomain {
 
+	/** Prices of the goods market at one tick, indexed by need */
+	private record PriceSnapshot(long tick, double[] prices) {}
+
 	private final Region region; // the region represented by this domain
 	private final GoodsMarketB2C goodsMarket;
+	private HouseholdPopulation population=null; // columnar store of the households' states, optional
+	private BudgetPlanner budgetPlanner=null; // plans the budgets of the population, optional
+	private volatile PriceSnapshot priceSnapshot=null; // shared by all households planning at the same tick
 	//private final LaborMarket lm;
 	
 	public Domain(Region r,GoodsMarketB2C gm) {
@@ -45,6 +54,48 @@ public final class Domain extends RoutingDomain {
 	public GoodsMarketB2C getGoodsMarket() { return goodsMarket; }
 
 	public Region getRegion() { return region; }
+
+	/**
+	 * Returns the columnar store of the states of all households in this domain.
+	 *
+	 * @return the household population or {@code null} if households keep their state in separate objects
+	 */
+	public HouseholdPopulation getHouseholdPopulation() { return population; }
+
+	public void setHouseholdPopulation(HouseholdPopulation value) { population=value; }
+
+	/**
+	 * Returns the agent planning the budgets of all households in this domain.
+	 *
+	 * @return the budget planner or {@code null} if each household plans its budget itself
+	 */
+	public BudgetPlanner getBudgetPlanner() { return budgetPlanner; }
+
+	public void setBudgetPlanner(BudgetPlanner value) { budgetPlanner=value; }
+
+	/**
+	 * Returns the goods market's prices of the satisfiers of all needs.
+	 * <p>
+	 * The prices are looked up by the first call of a tick and then shared by all later callers of the same tick, e.g.
+	 * by all households planning their budget. So they are the market prices at the time of that first lookup: under
+	 * the parallel simulator, a market clearing at the same tick may change the market's prices afterwards without
+	 * affecting the returned ones. Concurrent first callers may each look the prices up and get different snapshots,
+	 * the last one published is used by the following callers.
+	 *
+	 * @param tick the actual time in ticks
+	 * @return the price of each need's satisfier indexed by {@link Need#getIndex()}, must not be changed
+	 */
+	public double[] getNeedPrices(long tick) {
+		PriceSnapshot snapshot=priceSnapshot;
+		if (snapshot==null||snapshot.tick()!=tick) {
+			final double[] prices=new double[Model.getInstance().getNeeds().size()];
+			for (Need need : Model.getInstance().getNeeds())
+				prices[need.getIndex()]=goodsMarket.getPrice(need.getSatisfier());
+			snapshot=new PriceSnapshot(tick,prices);
+			priceSnapshot=snapshot;
+		}
+		return snapshot.prices();
+	}
 	
 	/**
 	 * Returns the index of this domain.
@@ -62,7 +113,19 @@ public final class Domain extends RoutingDomain {
 	 * @return domain index of the entity with the given address within the model tree 
 	 */
 	public static int getDomainIndex(BasicModelEntity entity) {
-		return entity.getAddress()[0];
+		return getDomainIndex(entity.getAddress());
+	}
+
+	/**
+	 * Returns the domain index of the given address.
+	 * <p>
+	 * Depends only on the address' content, so it also works with copies of the address array.
+	 * 
+	 * @param addr the address
+	 * @return domain index of the entity with the given address within the model tree
+	 */
+	public static int getDomainIndex(int[] addr) {
+		return addr[0];
 	}
 	
 	public String getName() {
@@ -5,18 +5,36 @@
  */
 package org.simnation.model;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.simnation.agents.AbstractBasicAgent;
 import org.simnation.agents.firm.trader.Trader;
 import org.simnation.agents.firm.trader.TraderDTO;
+import org.simnation.agents.household.BudgetPlanner;
 import org.simnation.agents.household.Household;
 import org.simnation.agents.household.HouseholdDTO;
+import org.simnation.agents.household.HouseholdPopulation;
 import org.simnation.agents.household.Need;
 import org.simnation.agents.market.GoodsMarketB2C;
 import org.simnation.context.geography.Region;
 import org.simnation.context.technology.Good;
 import org.simnation.persistence.DataAccessObject;
+import org.simnation.persistence.SnapshotReader;
+import org.simnation.persistence.SnapshotWriter;
+import org.simplesim.core.scheduling.Time;
+import org.simplesim.model.Agent;
 import org.simplesim.model.RoutingDomain;
 
 /**
@@ -44,6 +62,9 @@ public final class Model extends RoutingDomain {
 
 	private static Model instance=null;
 
+	/** version of the snapshot file format */
+	private static final int SNAPSHOT_VERSION=4;
+
 	/** set of all regions */
 	private final Set<Region> regions=new HashSet<>();
 
@@ -61,10 +82,19 @@ public final class Model extends RoutingDomain {
 
 	/** set of all regional market */
 	private final Set<GoodsMarketB2C> b2c=new HashSet<>();
+
+	/** all domains in the order of their regions' indices */
+	private final List<Domain> domains=new ArrayList<>();
 	//private final Set<LaborMarket> lm=new HashSet<>();
 	
 	private double economicGrowth=1.0d;
 	
+	/** keep household states in a columnar store per domain? */
+	private boolean columnarHouseholds=false;
+
+	/** plan the budgets of each domain's household population in one pass? */
+	private boolean populationBudgeting=false;
+	
 	// Singleton
 	private Model() {
 		setAsRootDomain();
@@ -88,6 +118,60 @@ public final class Model extends RoutingDomain {
 	public Set<GoodsMarketB2C> getB2CMarketSet() { return b2c; }
 
 	public void load(DataAccessObject dao) throws Exception {
+		load(dao,-1);
+	}
+
+	/**
+	 * Loads the model, optionally constructing the agents of the regions concurrently.
+	 * <p>
+	 * The model context (value chain, need system, geography) is loaded first. Then the domains of all regions are
+	 * created and attached to the root in the order of the regions' indices, so the model tree does not depend on the
+	 * scheduling of threads. Finally, the agents of each region are loaded and added to their domain. In parallel
+	 * mode, each region is done by a worker with a data access object of its own.
+	 *
+	 * @param dao     data access object of the scenario
+	 * @param workers number of workers constructing regions, 0 for one per core, negative for sequential loading
+	 * @throws Exception JPA or IO exception
+	 */
+	public void load(DataAccessObject dao, int workers) throws Exception {
+		loadContext(dao);
+		createDomains();
+		// adding households and companies externally
+		final Map<Good, Good> goodIndex=new HashMap<>(); // maps equal goods to the model's instance
+		for (Good good : getGoods()) goodIndex.put(good,good);
+		if (workers<0) for (Domain domain : domains) loadAgents(dao,domain,goodIndex);
+		else {
+			final ExecutorService executor=Executors
+					.newFixedThreadPool(workers==0 ? Runtime.getRuntime().availableProcessors() : workers);
+			try {
+				final List<Future<Void>> results=new ArrayList<>(domains.size());
+				for (Domain domain : domains) results.add(executor.submit(() -> {
+					final DataAccessObject local=dao.fork(); // entity managers are not thread-safe
+					try {
+						loadAgents(local,domain,goodIndex);
+					} finally {
+						local.close();
+					}
+					return null;
+				}));
+				for (Future<Void> result : results) {
+					try {
+						result.get();
+					} catch (ExecutionException exception) {
+						if (exception.getCause() instanceof Exception) throw (Exception) exception.getCause();
+						throw exception;
+					}
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Loads the model context: value chain, need system and geography.
+	 */
+	private void loadContext(DataAccessObject dao) throws Exception {
 		// set up value chain
 		goods.addAll(dao.load(Good.class));
 		for (Good good : getGoods()) if (good.isResource()) resources.add(good);
@@ -97,19 +181,149 @@ public final class Model extends RoutingDomain {
 		Household.initNeedMap(getNeeds()); // init household's need hierarchy and event tables
 		// set up geography
 		regions.addAll(dao.load(Region.class));
-		
-		for (Region region : getRegions()) {
+	}
+
+	/**
+	 * Creates the domains of all regions with their markets and attaches them to the root in the order of the
+	 * regions' indices.
+	 */
+	private void createDomains() {
+		final List<Region> regionList=new ArrayList<>(getRegions());
+		regionList.sort(Comparator.comparingInt(Region::getIndex));
+		for (Region region : regionList) {
 			final GoodsMarketB2C gm=new GoodsMarketB2C(getConsumables());
 			b2c.add(gm);
 			// final LaborMarket lm=new LaborMarket(SkillSet.values());
 			final Domain domain=new Domain(region,gm); // adding market entities
 			Model.getInstance().addEntity(domain); // add domain to model
 			domain.addEntity(gm);
-			// adding households and companies externally
-			for (HouseholdDTO dto : dao.load(HouseholdDTO.class,region)) domain.addEntity(new Household(dto));
-			for (TraderDTO dbs : dao.load(TraderDTO.class,region)) domain.addEntity(new Trader(dbs));
+			domain.setHouseholdPopulation(columnarHouseholds ? new HouseholdPopulation() : null);
+			if (isPopulationBudgeting()) { // add planner before the households
+				domain.setBudgetPlanner(new BudgetPlanner(domain.getHouseholdPopulation()));
+				domain.addEntity(domain.getBudgetPlanner());
+			}
+			domains.add(domain);
+		}
+	}
+
+	/**
+	 * Writes a binary snapshot of the running model.
+	 * <p>
+	 * The snapshot contains the states and pending events of all agents as well as the markets' statistics and
+	 * orders. The model context is only referenced, it is loaded from the scenario again on restore. Has to be called
+	 * between simulation runs, when all messages have been forwarded. Messages waiting at the agents' inports are
+	 * handled before writing: agents handle them first on their next activation anyway and message handling does not
+	 * depend on the time.
+	 *
+	 * @param file the snapshot file, overwritten if it exists
+	 * @param time the current simulation time
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(Path file, Time time) throws IOException {
+		for (Agent agent : listAllAgents(true)) ((AbstractBasicAgent<?, ?>) agent).handleMessages();
+		try (SnapshotWriter out=new SnapshotWriter(file)) {
+			out.putInt(SNAPSHOT_VERSION);
+			out.putLong(time.getTicks());
+			final List<Good> goodList=new ArrayList<>(getGoods());
+			goodList.sort(Comparator.comparing(Good::getName));
+			out.putReferences(goodList);
+			final List<String> needList=listNeedNames();
+			out.putInt(needList.size());
+			for (String name : needList) out.putString(name);
+			out.putInt(domains.size());
+			for (Domain domain : domains) {
+				final List<Household> households=new ArrayList<>();
+				final List<Trader> traders=new ArrayList<>();
+				for (Agent agent : domain.listAllAgents(true)) {
+					if (agent instanceof Household) households.add((Household) agent);
+					else if (agent instanceof Trader) traders.add((Trader) agent);
+					else if (agent!=domain.getGoodsMarket()&&agent!=domain.getBudgetPlanner())
+						throw new IllegalStateException("Snapshot: agent type "+agent.getName()+" not supported!");
+				}
+				out.putInt(domain.getRegion().getIndex());
+				out.putInt(households.size());
+				for (Household household : households) household.writeSnapshot(out);
+				out.putInt(traders.size());
+				for (Trader trader : traders) trader.writeSnapshot(out);
+				domain.getGoodsMarket().writeSnapshot(out);
+				out.putBoolean(domain.getBudgetPlanner()!=null);
+				if (domain.getBudgetPlanner()!=null) domain.getBudgetPlanner().writeSnapshot(out);
+			}
+		}
+	}
+
+	/**
+	 * Restores the model from a binary snapshot.
+	 * <p>
+	 * Only the model context is loaded from the scenario. The agents are constructed from the snapshot in the same
+	 * order as they were saved, so they get the same addresses as before.
+	 *
+	 * @param dao  data access object of the scenario the snapshot was taken from
+	 * @param file the snapshot file
+	 * @return the simulation time of the snapshot
+	 * @throws Exception JPA or IO exception
+	 */
+	public Time restoreSnapshot(DataAccessObject dao, Path file) throws Exception {
+		loadContext(dao);
+		createDomains();
+		try (SnapshotReader in=new SnapshotReader(file)) {
+			if (in.getInt()!=SNAPSHOT_VERSION) throw new IllegalStateException("Snapshot: unsupported file version!");
+			final Time time=new Time(in.getLong());
+			in.getReferences(getGoods());
+			final List<String> needList=listNeedNames();
+			if (in.getInt()!=needList.size()) throw new IllegalStateException("Snapshot: needs do not match the scenario!");
+			for (String name : needList)
+				if (!name.equals(in.getString())) throw new IllegalStateException("Snapshot: needs do not match the scenario!");
+			if (in.getInt()!=domains.size()) throw new IllegalStateException("Snapshot: regions do not match the scenario!");
+			for (Domain domain : domains) {
+				if (in.getInt()!=domain.getRegion().getIndex())
+					throw new IllegalStateException("Snapshot: regions do not match the scenario!");
+				for (int count=in.getInt(); count>0; count--) {
+					final HouseholdDTO dto=new HouseholdDTO();
+					dto.readSnapshot(in);
+					final Household household=new Household(dto,domain.getHouseholdPopulation());
+					domain.addEntity(household);
+					in.register(household);
+					household.readSnapshot(in);
+				}
+				for (int count=in.getInt(); count>0; count--) {
+					final TraderDTO dto=new TraderDTO();
+					dto.readSnapshot(in);
+					final Trader trader=new Trader(dto);
+					domain.addEntity(trader);
+					in.register(trader);
+					trader.readSnapshot(in);
+				}
+				domain.getGoodsMarket().readSnapshot(in); // orders refer to the domain's households
+				if (in.getBoolean()!=(domain.getBudgetPlanner()!=null))
+					throw new IllegalStateException("Snapshot: population budgeting does not match the snapshot!");
+				if (domain.getBudgetPlanner()!=null) domain.getBudgetPlanner().readSnapshot(in);
+			}
+			return time;
 		}
+	}
 
+	/** @return names of all needs in the order of their index */
+	private List<String> listNeedNames() {
+		final String[] result=new String[getNeeds().size()];
+		for (Need need : getNeeds()) result[need.getIndex()]=need.getName();
+		return List.of(result);
+	}
+
+	/**
+	 * Loads the agents of a region and adds them to the region's domain.
+	 * <p>
+	 * Objects loaded by another data access object are different instances, so goods referenced by the agents are
+	 * replaced by the model's instances. Otherwise identity-based maps like the markets' segments would fail.
+	 */
+	private static void loadAgents(DataAccessObject dao, Domain domain, Map<Good, Good> goodIndex) throws Exception {
+		final HouseholdPopulation population=domain.getHouseholdPopulation();
+		// stream agents' states, so the region's population is never held in memory as a whole
+		dao.load(HouseholdDTO.class,domain.getRegion(),dto -> domain.addEntity(new Household(dto,population)));
+		dao.load(TraderDTO.class,domain.getRegion(),dto -> {
+			dto.setGood(goodIndex.getOrDefault(dto.getGood(),dto.getGood()));
+			domain.addEntity(new Trader(dto));
+		});
 	}
 
 	public void save(DataAccessObject dao) throws Exception {
@@ -129,4 +343,25 @@ public final class Model extends RoutingDomain {
 		this.economicGrowth = economicGrowth;
 	}
 
+	public boolean isColumnarHouseholds() { return columnarHouseholds; }
+
+	/**
+	 * Sets whether household states are kept in a columnar store per domain. Has to be set before loading the model.
+	 * 
+	 * @param value {@code true} for a {@link HouseholdPopulation} per domain
+	 */
+	public void setColumnarHouseholds(boolean value) { columnarHouseholds=value; }
+
+	/** @return {@code true} if the budgets of the households are planned per domain, only with columnar households */
+	public boolean isPopulationBudgeting() { return columnarHouseholds&&populationBudgeting; }
+
+	/**
+	 * Sets whether the budgets of all households of a domain are planned in one pass by a {@link BudgetPlanner}
+	 * instead of one event per household. Only effective with columnar households. Has to be set before loading the
+	 * model.
+	 *
+	 * @param value {@code true} for a budget planner per domain
+	 */
+	public void setPopulationBudgeting(boolean value) { populationBudgeting=value; }
+
 }
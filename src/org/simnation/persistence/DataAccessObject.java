@@ -2,11 +2,16 @@ package org.simnation.persistence;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.CursoredStream;
 import org.simnation.context.geography.Region;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.Persistence;
+import jakarta.persistence.Query;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
@@ -19,6 +24,9 @@ import jakarta.persistence.criteria.Root;
  */
 public final class DataAccessObject {
 
+	/** number of objects read from the database at a time when streaming */
+	public static final int PAGE_SIZE=1000;
+
 	private final EntityManager pm;
 
 	public DataAccessObject(EntityManager value) {
@@ -29,6 +37,18 @@ public final class DataAccessObject {
 		this(Persistence.createEntityManagerFactory(pmfName).createEntityManager());
 	}
 
+	/**
+	 * Opens another data access object on the same database.
+	 * <p>
+	 * Entity managers are not thread-safe, so each thread accessing the database needs a data access object of its
+	 * own.
+	 *
+	 * @return a new data access object with an entity manager of its own
+	 */
+	public DataAccessObject fork() {
+		return new DataAccessObject(pm.getEntityManagerFactory().createEntityManager());
+	}
+
 	/**
 	 * Closes the database connection and all queries.
 	 */
@@ -64,11 +84,53 @@ public final class DataAccessObject {
 	 * @throws Exception JPA or IO exception
 	 */
 	public <T> List<T> load(Class<T> clazz, Region region) throws Exception {
+		return pm.createQuery(createRegionQuery(clazz,region)).getResultList();
+	}
+
+	/**
+	 * Streams a set of class objects filtered by the assigned region to a consumer.
+	 * <p>
+	 * In contrast to {@link #load(Class, Region)}, the result is never materialized as a whole. The objects are read
+	 * page by page via a database cursor and handed to the consumer as they arrive. After each page, its objects are
+	 * detached from the persistence context and released by the cursor, so only one page is kept in memory. The
+	 * consumer should convert each object right away, e.g. into an agent, and not keep a reference to it.
+	 * <p>
+	 * Note: Only the streamed objects are detached. Objects loaded before, like goods and regions, stay managed, so
+	 * references to them keep their identity.
+	 *
+	 * @param <T>      class type
+	 * @param clazz    class type
+	 * @param region   index of the assigned region
+	 * @param consumer called for each object in the order of arrival
+	 * @return number of objects loaded
+	 * @throws Exception JPA or IO exception
+	 */
+	public <T> int load(Class<T> clazz, Region region, Consumer<? super T> consumer) throws Exception {
+		final Query query=pm.createQuery(createRegionQuery(clazz,region));
+		query.setHint(QueryHints.CURSOR,HintValues.TRUE);
+		query.setHint(QueryHints.CURSOR_PAGE_SIZE,PAGE_SIZE);
+		query.setHint(QueryHints.JDBC_FETCH_SIZE,PAGE_SIZE);
+		final CursoredStream cursor=(CursoredStream) query.getSingleResult();
+		int count=0;
+		try {
+			while (cursor.hasNext()) {
+				final List<?> page=cursor.next(PAGE_SIZE);
+				for (Object item : page) consumer.accept(clazz.cast(item));
+				for (Object item : page) pm.detach(item); // keep the persistence context small
+				cursor.releasePrevious();
+				count+=page.size();
+			}
+		} finally {
+			cursor.close();
+		}
+		return count;
+	}
+
+	private <T> CriteriaQuery<T> createRegionQuery(Class<T> clazz, Region region) {
 		final CriteriaBuilder cb=pm.getCriteriaBuilder();
 		final CriteriaQuery<T> cq=cb.createQuery(clazz);
 		final Root<T> root=cq.from(clazz);
-		cq.select(root).where(cb.equal(root.get("region"),region));
-		return pm.createQuery(cq).getResultList();
+		return cq.select(root).where(cb.equal(root.get("region"),region));
 	}
 
 	public <T> void save(Collection<T> set) throws Exception {
@@ -0,0 +1,160 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.simplesim.model.BasicModelEntity;
+
+/**
+ * Reads a binary snapshot written by a {@link SnapshotWriter}.
+ * <p>
+ * Besides reading values, the reader resolves references to context objects and keeps track of the restored agents,
+ * so objects can be linked to agents restored before by their address.
+ */
+public final class SnapshotReader implements AutoCloseable {
+
+	private final FileChannel channel;
+	private final long length; // length of the content
+	private final List<Object> references=new ArrayList<>();
+	private final Map<String, BasicModelEntity> entities=new HashMap<>();
+	private MappedByteBuffer buffer;
+	private long offset; // file position of the window
+
+	public SnapshotReader(Path file) throws IOException {
+		channel=FileChannel.open(file,StandardOpenOption.READ);
+		offset=0;
+		buffer=channel.map(FileChannel.MapMode.READ_ONLY,0,Long.BYTES);
+		length=buffer.getLong();
+		map(Long.BYTES);
+	}
+
+	/**
+	 * Reads a table of context objects and resolves each by its name.
+	 *
+	 * @param objects the current context objects, identified by their {@code toString()} value
+	 * @throws IllegalStateException if a context object of the snapshot does not exist
+	 */
+	public void getReferences(Collection<?> objects) {
+		final Map<String, Object> index=new HashMap<>();
+		for (Object object : objects) index.put(object.toString(),object);
+		final int count=getInt();
+		for (int pos=0; pos<count; pos++) {
+			final String name=getString();
+			final Object object=index.get(name);
+			if (object==null) throw new IllegalStateException("Snapshot references unknown object "+name+"!");
+			references.add(object);
+		}
+	}
+
+	/**
+	 * Reads a reference to a context object.
+	 *
+	 * @param <T> type of the context object
+	 * @return the context object
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getReference() {
+		return (T) references.get(getInt());
+	}
+
+	/**
+	 * Registers a restored model entity, so it can be found by its address.
+	 *
+	 * @param entity the restored entity
+	 */
+	public void register(BasicModelEntity entity) {
+		entities.put(Arrays.toString(entity.getAddress()),entity);
+	}
+
+	/**
+	 * Finds a model entity registered before by its address.
+	 *
+	 * @param <T>  type of the entity
+	 * @param addr address of the entity
+	 * @return the entity
+	 * @throws IllegalStateException if there is no such entity
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends BasicModelEntity> T getEntity(int[] addr) {
+		final BasicModelEntity result=entities.get(Arrays.toString(addr));
+		if (result==null) throw new IllegalStateException("Snapshot references unknown entity "+Arrays.toString(addr)+"!");
+		return (T) result;
+	}
+
+	public boolean getBoolean() {
+		ensure(1);
+		return buffer.get()!=0;
+	}
+
+	public int getInt() {
+		ensure(Integer.BYTES);
+		return buffer.getInt();
+	}
+
+	public long getLong() {
+		ensure(Long.BYTES);
+		return buffer.getLong();
+	}
+
+	public float getFloat() {
+		ensure(Float.BYTES);
+		return buffer.getFloat();
+	}
+
+	public double getDouble() {
+		ensure(Double.BYTES);
+		return buffer.getDouble();
+	}
+
+	public String getString() {
+		final byte[] bytes=new byte[getInt()];
+		ensure(bytes.length);
+		buffer.get(bytes);
+		return new String(bytes,StandardCharsets.UTF_8);
+	}
+
+	public int[] getIntArray() {
+		final int[] result=new int[getInt()];
+		for (int pos=0; pos<result.length; pos++) result[pos]=getInt();
+		return result;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer=null;
+		channel.close();
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining()<bytes) {
+			if (offset+buffer.position()+bytes>length) throw new IllegalStateException("Snapshot: unexpected end of file!");
+			map(offset+buffer.position());
+		}
+	}
+
+	private void map(long position) {
+		try {
+			offset=position;
+			buffer=channel.map(FileChannel.MapMode.READ_ONLY,position,Math.min(SnapshotWriter.WINDOW_SIZE,length-position));
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+}
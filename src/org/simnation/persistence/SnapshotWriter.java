@@ -0,0 +1,137 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a binary snapshot of a running simulation to a file.
+ * <p>
+ * The file is written through a memory-mapped window that is moved along the file, so values are stored by plain
+ * memory access. Objects of the model context (e.g. goods) are not written themselves but referenced by their index in
+ * a table of references written at the start, see {@link #putReferences(List)}.
+ * <p>
+ * The file starts with the length of its content, since it is only extended window by window and never truncated
+ * (truncating a mapped file is not possible on all platforms).
+ *
+ * @see SnapshotReader
+ */
+public final class SnapshotWriter implements AutoCloseable {
+
+	/** size of the mapped window, no single value may be larger */
+	static final int WINDOW_SIZE=1<<24;
+
+	private final FileChannel channel;
+	private final Map<Object, Integer> references=new IdentityHashMap<>();
+	private MappedByteBuffer buffer;
+	private long offset; // file position of the window
+
+	public SnapshotWriter(Path file) throws IOException {
+		channel=FileChannel.open(file,StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ,StandardOpenOption.WRITE);
+		map(0);
+		buffer.putLong(0); // placeholder for the length
+	}
+
+	/**
+	 * Writes a table of context objects by their names, so they can be referenced by index afterwards.
+	 *
+	 * @param objects context objects, identified by their {@code toString()} value
+	 */
+	public void putReferences(List<?> objects) {
+		putInt(objects.size());
+		for (Object object : objects) {
+			references.put(object,references.size());
+			putString(object.toString());
+		}
+	}
+
+	/**
+	 * Writes a reference to a context object registered by {@link #putReferences(List)}.
+	 *
+	 * @param object the context object
+	 */
+	public void putReference(Object object) {
+		final Integer index=references.get(object);
+		if (index==null) throw new IllegalArgumentException("SnapshotWriter: "+object+" is not a registered reference!");
+		putInt(index);
+	}
+
+	public void putBoolean(boolean value) {
+		ensure(1);
+		buffer.put(value ? (byte) 1 : (byte) 0);
+	}
+
+	public void putInt(int value) {
+		ensure(Integer.BYTES);
+		buffer.putInt(value);
+	}
+
+	public void putLong(long value) {
+		ensure(Long.BYTES);
+		buffer.putLong(value);
+	}
+
+	public void putFloat(float value) {
+		ensure(Float.BYTES);
+		buffer.putFloat(value);
+	}
+
+	public void putDouble(double value) {
+		ensure(Double.BYTES);
+		buffer.putDouble(value);
+	}
+
+	public void putString(String value) {
+		final byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		ensure(bytes.length);
+		buffer.put(bytes);
+	}
+
+	public void putIntArray(int[] value) {
+		putInt(value.length);
+		for (int item : value) putInt(item);
+	}
+
+	/**
+	 * Stores the length of the content and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		final long length=offset+buffer.position();
+		buffer.force();
+		final MappedByteBuffer header=channel.map(FileChannel.MapMode.READ_WRITE,0,Long.BYTES);
+		header.putLong(0,length);
+		header.force();
+		buffer=null;
+		channel.close();
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining()<bytes) map(offset+buffer.position());
+	}
+
+	private void map(long position) {
+		try {
+			if (buffer!=null) buffer.force();
+			offset=position;
+			buffer=channel.map(FileChannel.MapMode.READ_WRITE,position,WINDOW_SIZE);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.persistence;
+
+/**
+ * Marks objects whose state can be written to and restored from a binary snapshot of a running simulation.
+ * <p>
+ * Implementations have to read exactly the values they have written, in the same order.
+ *
+ * @see SnapshotWriter
+ * @see SnapshotReader
+ */
+public interface Snapshotable {
+
+	void writeSnapshot(SnapshotWriter out);
+
+	void readSnapshot(SnapshotReader in);
+
+}
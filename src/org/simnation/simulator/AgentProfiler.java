@@ -0,0 +1,357 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.simulator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Profiles the activations of agents per agent class and per event type.
+ * <p>
+ * While profiling is on, activations and incoming and outgoing messages are counted exactly. The wall time of
+ * activations, of handling the messages of an activation and of each handled event is measured only on every n-th
+ * activation of a thread (the sampling interval) and recorded into {@link LatencyHistogram}s. Thus, the overhead can be
+ * adjusted by the sampling interval. If profiling is off (interval 0, the default), each activation only reads a
+ * volatile field.
+ * <p>
+ * Each thread records into statistics of its own, so activations in parallel domains do not contend. The statistics
+ * of all threads are merged when reported, values of a running simulation may be slightly out of date. Results are
+ * available via JMX ({@link #registerMBean()}, see {@link AgentProfilerMXBean}) and as periodic CSV dump
+ * ({@link #startCsvDump(Path, long)}).
+ * <p>
+ * Recording is done by {@code AbstractBasicAgent}:
+ *
+ * <pre>
+ * final AgentProfiler.Recorder recorder=AgentProfiler.getRecorder(); // null if profiling is off
+ * </pre>
+ */
+public final class AgentProfiler {
+
+	/** name of the pseudo event for the handling of all messages of an activation */
+	public static final String MESSAGES="messages";
+	public static final String OBJECT_NAME="org.simnation:type=AgentProfiler";
+
+	/**
+	 * Histograms of the event types of an agent class together with the event constants, indexed by the event's
+	 * ordinal. Never changed after publication, so readers of other threads always see matching arrays.
+	 */
+	private record EventStats(LatencyHistogram[] histograms, Enum<?>[] names) {
+		static final EventStats EMPTY=new EventStats(new LatencyHistogram[0],new Enum<?>[0]);
+	}
+
+	/** Statistics of one agent class */
+	private static final class TypeStats {
+		long activations=0, messagesIn=0, messagesOut=0;
+		final LatencyHistogram activation=new LatencyHistogram();
+		final LatencyHistogram messages=new LatencyHistogram();
+		volatile EventStats events=EventStats.EMPTY; // replaced as a whole on each new event type
+
+		LatencyHistogram getEvent(Enum<?> event) {
+			final int ordinal=event.ordinal();
+			final EventStats actual=events;
+			final LatencyHistogram[] known=actual.histograms();
+			if (ordinal<known.length&&known[ordinal]!=null) return known[ordinal];
+			// first event of this type: publish new arrays, readers may still use the old ones
+			final Enum<?>[] constants=event.getDeclaringClass().getEnumConstants();
+			final LatencyHistogram[] histograms=Arrays.copyOf(actual.histograms(),constants.length);
+			histograms[ordinal]=new LatencyHistogram();
+			events=new EventStats(histograms,constants);
+			return histograms[ordinal];
+		}
+
+		void add(TypeStats other) {
+			activations+=other.activations;
+			messagesIn+=other.messagesIn;
+			messagesOut+=other.messagesOut;
+			activation.add(other.activation);
+			messages.add(other.messages);
+			final EventStats others=other.events; // read once, arrays of the same publication
+			for (int index=0; index<others.histograms().length; index++)
+				if (others.histograms()[index]!=null) getEvent(others.names()[index]).add(others.histograms()[index]);
+		}
+	}
+
+	/**
+	 * Records the activations of one thread.
+	 * <p>
+	 * Calling sequence per activation: {@link #activate(Class)}, {@link #messageHandled()} per message,
+	 * {@link #messagesHandled()}, {@link #eventHandled(Enum, long)} per event and finally {@link #deactivate()}.
+	 * Messages sent in between are counted by {@link #messageSent()}.
+	 */
+	public static final class Recorder {
+
+		private TypeStats[] types=new TypeStats[8]; // indexed by type id
+		private TypeStats current=null;
+		private long counter=0, start=0, messageStart=0;
+		private boolean sampled=false;
+		private int generation=AgentProfiler.generation;
+
+		/**
+		 * Starts the profiling of an activation.
+		 *
+		 * @param type the agent's class
+		 * @return {@code true} if the activation's times are measured
+		 */
+		public boolean activate(Class<?> type) {
+			if (generation!=AgentProfiler.generation) { // reset requested
+				types=new TypeStats[types.length];
+				generation=AgentProfiler.generation;
+			}
+			final int id=TYPE_IDS.get(type);
+			if (id>=types.length) types=Arrays.copyOf(types,Math.max(id+1,types.length<<1));
+			if (types[id]==null) types[id]=new TypeStats();
+			current=types[id];
+			current.activations++;
+			final int interval=samplingInterval;
+			sampled=interval>0&&++counter%interval==0;
+			if (sampled) messageStart=start=System.nanoTime();
+			return sampled;
+		}
+
+		public void messageHandled() { current.messagesIn++; }
+
+		public void messageSent() { if (current!=null) current.messagesOut++; }
+
+		/**
+		 * Records the handling of an event, to be called after all messages have been handled.
+		 *
+		 * @param event the event
+		 * @param begin start of the event's handling, see {@link System#nanoTime()}, ignored if not sampled
+		 * @return the end of the event's handling, start of the next one
+		 */
+		public long eventHandled(Enum<?> event, long begin) {
+			if (!sampled) return 0;
+			final long end=System.nanoTime();
+			current.getEvent(event).record(end-begin);
+			return end;
+		}
+
+		/**
+		 * Marks the end of message handling.
+		 *
+		 * @return start of the event handling, see {@link System#nanoTime()}, 0 if not sampled
+		 */
+		public long messagesHandled() {
+			if (!sampled) return 0;
+			final long end=System.nanoTime();
+			current.messages.record(end-messageStart);
+			return end;
+		}
+
+		public void deactivate() {
+			if (sampled) current.activation.record(System.nanoTime()-start);
+			current=null;
+		}
+
+	}
+
+	private static final ClassValue<Integer> TYPE_IDS=new ClassValue<>() {
+		@Override
+		protected Integer computeValue(Class<?> type) {
+			return registerType(type);
+		}
+	};
+	private static final List<String> TYPE_NAMES=new ArrayList<>(); // guarded by itself
+	private static final Map<Class<?>, Integer> TYPES=new HashMap<>(); // guarded by TYPE_NAMES
+	private static final Queue<Recorder> RECORDERS=new ConcurrentLinkedQueue<>();
+	private static final ThreadLocal<Recorder> RECORDER=ThreadLocal.withInitial(() -> {
+		final Recorder recorder=new Recorder();
+		RECORDERS.add(recorder);
+		return recorder;
+	});
+
+	private static volatile int samplingInterval=0;
+	private static volatile boolean enabled=false;
+	private static volatile int generation=0;
+	private static ScheduledExecutorService dumper=null;
+
+	private AgentProfiler() {}
+
+	/**
+	 * Returns the recorder of the current thread.
+	 *
+	 * @return the recorder, {@code null} if profiling is off
+	 */
+	public static Recorder getRecorder() { return enabled ? RECORDER.get() : null; }
+
+	public static boolean isEnabled() { return enabled; }
+
+	public static int getSamplingInterval() { return samplingInterval; }
+
+	/**
+	 * Switches profiling on or off and sets the sampling interval.
+	 *
+	 * @param interval measure times on every n-th activation of a thread, 0 to switch profiling off
+	 */
+	public static void setSamplingInterval(int interval) {
+		if (interval<0) throw new IllegalArgumentException("Sampling interval must not be negative: "+interval);
+		samplingInterval=interval;
+		enabled=interval>0;
+	}
+
+	/** Discards all statistics recorded so far, each thread resets on its next activation */
+	public static void reset() { generation++; }
+
+	/**
+	 * Registers the profiler as platform MBean, see {@link #OBJECT_NAME}.
+	 *
+	 * @throws JMException if the registration fails
+	 */
+	public static void registerMBean() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new AgentProfilerMXBean.Bean(),
+				new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Appends the actual statistics to a CSV file periodically.
+	 * <p>
+	 * Each dump adds one line per agent class and event type with time stamp, agent class, event, activations, messages
+	 * in, messages out, samples and mean, median, 90th and 99th percentile and maximum of the wall time in nanoseconds.
+	 * The event is empty for the activation as a whole and {@value #MESSAGES} for the message handling.
+	 *
+	 * @param file   the file, a header is written if it is new
+	 * @param period seconds between two dumps
+	 * @throws IOException if the file cannot be written
+	 */
+	public static synchronized void startCsvDump(Path file, long period) throws IOException {
+		if (!Files.exists(file)) Files.writeString(file,
+				"time,agent,event,activations,messages_in,messages_out,samples,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n");
+		stopCsvDump();
+		dumper=Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread=new Thread(runnable,"AgentProfiler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumper.scheduleAtFixedRate(() -> dumpCsv(file),period,period,TimeUnit.SECONDS);
+	}
+
+	/** Stops a periodic CSV dump started before and waits until a running dump is finished. */
+	public static synchronized void stopCsvDump() {
+		if (dumper==null) return;
+		dumper.shutdown();
+		try {
+			dumper.awaitTermination(1,TimeUnit.MINUTES);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		dumper=null;
+	}
+
+	/**
+	 * Appends the actual statistics to a CSV file once, see {@link #startCsvDump(Path, long)}.
+	 *
+	 * @param file the file
+	 */
+	public static void dumpCsv(Path file) {
+		final String time=Instant.now().toString();
+		try (PrintWriter out=new PrintWriter(Files.newBufferedWriter(file,StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND))) {
+			for (Map.Entry<String, TypeStats> entry : collect().entrySet()) {
+				final TypeStats stats=entry.getValue();
+				final String prefix=time+","+entry.getKey()+",";
+				final String counts=","+stats.activations+","+stats.messagesIn+","+stats.messagesOut+",";
+				out.println(prefix+counts+format(stats.activation));
+				out.println(prefix+MESSAGES+counts+format(stats.messages));
+				final EventStats events=stats.events;
+				for (int index=0; index<events.histograms().length; index++) if (events.histograms()[index]!=null)
+					out.println(prefix+events.names()[index].name()+counts+format(events.histograms()[index]));
+			}
+		} catch (IOException exception) {
+			exception.printStackTrace();
+		}
+	}
+
+	static Map<String, Long> getActivations() { return getCounts(stats -> stats.activations); }
+
+	static Map<String, Long> getMessagesIn() { return getCounts(stats -> stats.messagesIn); }
+
+	static Map<String, Long> getMessagesOut() { return getCounts(stats -> stats.messagesOut); }
+
+	static Map<String, Long> getSamples() { return getCounts(stats -> stats.activation.getCount()); }
+
+	/**
+	 * Evaluates the histograms of all agent classes and event types.
+	 *
+	 * @param value the value to evaluate
+	 * @return the values keyed by agent class, agent class.{@value #MESSAGES} and agent class.event
+	 */
+	static Map<String, Double> getLatencies(ToDoubleFunction<LatencyHistogram> value) {
+		final Map<String, Double> result=new LinkedHashMap<>();
+		for (Map.Entry<String, TypeStats> entry : collect().entrySet()) {
+			final TypeStats stats=entry.getValue();
+			result.put(entry.getKey(),value.applyAsDouble(stats.activation));
+			result.put(entry.getKey()+"."+MESSAGES,value.applyAsDouble(stats.messages));
+			final EventStats events=stats.events;
+			for (int index=0; index<events.histograms().length; index++) if (events.histograms()[index]!=null)
+				result.put(entry.getKey()+"."+events.names()[index].name(),
+						value.applyAsDouble(events.histograms()[index]));
+		}
+		return result;
+	}
+
+	private static Map<String, Long> getCounts(ToLongFunction<TypeStats> counter) {
+		final Map<String, Long> result=new LinkedHashMap<>();
+		for (Map.Entry<String, TypeStats> entry : collect().entrySet())
+			result.put(entry.getKey(),counter.applyAsLong(entry.getValue()));
+		return result;
+	}
+
+	/** Merges the statistics of all threads, keyed by agent class */
+	private static Map<String, TypeStats> collect() {
+		final List<String> names;
+		synchronized (TYPE_NAMES) {
+			names=new ArrayList<>(TYPE_NAMES);
+		}
+		final TypeStats[] merged=new TypeStats[names.size()];
+		for (Recorder recorder : RECORDERS) {
+			if (recorder.generation!=generation) continue; // not activated since the last reset
+			final TypeStats[] types=recorder.types;
+			for (int id=0; id<Math.min(types.length,merged.length); id++) if (types[id]!=null) {
+				if (merged[id]==null) merged[id]=new TypeStats();
+				merged[id].add(types[id]);
+			}
+		}
+		final Map<String, TypeStats> result=new LinkedHashMap<>();
+		for (int id=0; id<merged.length; id++) if (merged[id]!=null) result.put(names.get(id),merged[id]);
+		return result;
+	}
+
+	private static String format(LatencyHistogram histogram) {
+		return histogram.getCount()+","+Math.round(histogram.getMean())+","+histogram.getValueAtPercentile(50)+","
+				+histogram.getValueAtPercentile(90)+","+histogram.getValueAtPercentile(99)+","+histogram.getMax();
+	}
+
+	private static int registerType(Class<?> type) {
+		synchronized (TYPE_NAMES) {
+			return TYPES.computeIfAbsent(type,key -> {
+				TYPE_NAMES.add(key.getSimpleName());
+				return TYPE_NAMES.size()-1;
+			});
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.simulator;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link AgentProfiler}, registered by {@link AgentProfiler#registerMBean()}.
+ * <p>
+ * Counts are keyed by agent class. Latencies are given in nanoseconds and keyed by agent class (whole activation),
+ * agent class.{@value AgentProfiler#MESSAGES} (message handling) and agent class.event.
+ */
+public interface AgentProfilerMXBean {
+
+	int getSamplingInterval();
+
+	/** @param interval measure times on every n-th activation of a thread, 0 to switch profiling off */
+	void setSamplingInterval(int interval);
+
+	Map<String, Long> getActivations();
+
+	Map<String, Long> getMessagesIn();
+
+	Map<String, Long> getMessagesOut();
+
+	Map<String, Long> getSamples();
+
+	Map<String, Double> getMeanNanos();
+
+	Map<String, Double> getMedianNanos();
+
+	Map<String, Double> getP99Nanos();
+
+	Map<String, Double> getMaxNanos();
+
+	void reset();
+
+	/** Implementation delegating to the static methods of {@link AgentProfiler} */
+	final class Bean implements AgentProfilerMXBean {
+
+		@Override
+		public int getSamplingInterval() { return AgentProfiler.getSamplingInterval(); }
+
+		@Override
+		public void setSamplingInterval(int interval) { AgentProfiler.setSamplingInterval(interval); }
+
+		@Override
+		public Map<String, Long> getActivations() { return AgentProfiler.getActivations(); }
+
+		@Override
+		public Map<String, Long> getMessagesIn() { return AgentProfiler.getMessagesIn(); }
+
+		@Override
+		public Map<String, Long> getMessagesOut() { return AgentProfiler.getMessagesOut(); }
+
+		@Override
+		public Map<String, Long> getSamples() { return AgentProfiler.getSamples(); }
+
+		@Override
+		public Map<String, Double> getMeanNanos() { return AgentProfiler.getLatencies(LatencyHistogram::getMean); }
+
+		@Override
+		public Map<String, Double> getMedianNanos() {
+			return AgentProfiler.getLatencies(histogram -> histogram.getValueAtPercentile(50));
+		}
+
+		@Override
+		public Map<String, Double> getP99Nanos() {
+			return AgentProfiler.getLatencies(histogram -> histogram.getValueAtPercentile(99));
+		}
+
+		@Override
+		public Map<String, Double> getMaxNanos() { return AgentProfiler.getLatencies(LatencyHistogram::getMax); }
+
+		@Override
+		public void reset() { AgentProfiler.reset(); }
+
+	}
+
+}
@@ -0,0 +1,26 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors:
+ * 	- Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.simulator;
+
+/**
+ * Marks agents that can be activated together in one batch with other agents due at the same time.
+ * <p>
+ * An agent may only implement this interface if its activation
+ * <ul>
+ * <li>only alters its own state,
+ * <li>only reads the state of agents that are not batchable (e.g. market prices) and
+ * <li>only interacts with other agents by sending messages.
+ * </ul>
+ * Then, the agents of a batch can be activated in any order or even concurrently with the same result.
+ *
+ * @see DomainParallelDESimulator
+ */
+public interface Batchable {}
@@ -0,0 +1,267 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors:
+ * 	- Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.simplesim.core.scheduling.EventQueue;
+import org.simplesim.core.scheduling.Time;
+
+/**
+ * Calendar queue (bucket queue) for events lying on a coarse time grid.
+ * <p>
+ * The time axis is divided into buckets of a fixed width, the buckets are organized as a ring ("calendar year").
+ * An event is put into the bucket of its time stamp modulo the length of a year. Most SimNation events are scheduled
+ * on a daily or monthly grid, so with a bucket width of one day, finding the next bucket with a due event and
+ * inserting an event take constant time on average, independent of the queue size.
+ * <p>
+ * Each bucket is a small binary heap of primitive time stamps, so events within the same bucket (e.g. daily offsets
+ * of different agent types) are still returned in correct order. Events farther in the future than one year stay in
+ * their bucket until the calendar reaches their year.
+ * <p>
+ * Note: This class is not thread-safe.
+ *
+ * @param <E> event type
+ */
+public final class CalendarEventQueue<E> implements EventQueue<E> {
+
+	/** one bucket per day */
+	public static final long DEFAULT_BUCKET_WIDTH=Time.TICKS_PER_DAY;
+	/** a calendar year of 64 days covers budget period and need activation periods */
+	public static final int DEFAULT_BUCKET_COUNT=64;
+
+	private static final int INITIAL_BUCKET_CAPACITY=4;
+
+	/** Binary min-heap of events within one bucket */
+	private static final class Bucket {
+
+		private long[] times=new long[INITIAL_BUCKET_CAPACITY];
+		private Object[] events=new Object[INITIAL_BUCKET_CAPACITY];
+		private int size=0;
+
+		void add(Object event, long time) {
+			if (size==times.length) {
+				times=Arrays.copyOf(times,size<<1);
+				events=Arrays.copyOf(events,size<<1);
+			}
+			int pos=size++;
+			while (pos>0) { // sift up
+				final int parent=(pos-1)>>>1;
+				if (times[parent]<=time) break;
+				times[pos]=times[parent];
+				events[pos]=events[parent];
+				pos=parent;
+			}
+			times[pos]=time;
+			events[pos]=event;
+		}
+
+		long minTime() { return times[0]; }
+
+		Object poll() { return removeAt(0); }
+
+		Object removeAt(int index) {
+			final Object result=events[index];
+			final int last=--size;
+			final long time=times[last];
+			final Object event=events[last];
+			events[last]=null; // prevent memory leak
+			if (index<last) {
+				int pos=index;
+				while (true) { // sift down
+					int child=(pos<<1)+1;
+					if (child>=last) break;
+					if (child+1<last&&times[child+1]<times[child]) child++;
+					if (time<=times[child]) break;
+					times[pos]=times[child];
+					events[pos]=events[child];
+					pos=child;
+				}
+				times[pos]=time;
+				events[pos]=event;
+				while (pos>0) { // sift up, needed if an inner element was removed
+					final int parent=(pos-1)>>>1;
+					if (times[parent]<=times[pos]) break;
+					swap(pos,parent);
+					pos=parent;
+				}
+			}
+			return result;
+		}
+
+		int indexOf(Object event) {
+			for (int index=0; index<size; index++) if (events[index].equals(event)) return index;
+			return -1;
+		}
+
+		private void swap(int a, int b) {
+			final long time=times[a];
+			times[a]=times[b];
+			times[b]=time;
+			final Object event=events[a];
+			events[a]=events[b];
+			events[b]=event;
+		}
+
+	}
+
+	private final long width;
+	private final int mask;
+	private final Bucket[] calendar;
+	private int size=0;
+
+	private int current=0; // bucket containing the minimum
+	private long currentTop=0; // exclusive upper time bound of the current bucket
+
+	private Time min=null; // cached time of the minimum, null if not valid
+
+	/**
+	 * Constructs a calendar queue.
+	 *
+	 * @param bucketWidth width of a bucket in ticks
+	 * @param bucketCount number of buckets, is rounded up to a power of two
+	 */
+	public CalendarEventQueue(long bucketWidth, int bucketCount) {
+		if (bucketWidth<1) throw new IllegalArgumentException("CalendarEventQueue(): bucket width must be positive!");
+		width=bucketWidth;
+		final int count=Integer.highestOneBit(Math.max(1,bucketCount-1))<<1;
+		mask=count-1;
+		calendar=new Bucket[count];
+	}
+
+	public CalendarEventQueue() {
+		this(DEFAULT_BUCKET_WIDTH,DEFAULT_BUCKET_COUNT);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(calendar,null);
+		size=0;
+		min=null;
+	}
+
+	@Override
+	public E dequeue() {
+		if (isEmpty()) return null;
+		final E result=pollCurrent();
+		min=null;
+		return result;
+	}
+
+	@Override
+	public Time dequeue(E event) {
+		for (int index=0; index<calendar.length; index++) {
+			final Bucket bucket=calendar[index];
+			if (bucket==null) continue;
+			final int pos=bucket.indexOf(event);
+			if (pos>=0) {
+				final long time=bucket.times[pos];
+				bucket.removeAt(pos);
+				size--;
+				min=null;
+				return new Time(time);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public List<E> dequeueAll() {
+		final List<E> result=new ArrayList<>();
+		if (isEmpty()) return result;
+		final long time=findMin();
+		final Bucket bucket=calendar[current];
+		while (bucket.size>0&&bucket.minTime()==time) result.add(pollCurrent());
+		min=null;
+		return result;
+	}
+
+	@Override
+	public List<E> dequeueAll(Time time) {
+		if (isEmpty()||getMin().getTicks()!=time.getTicks()) return new ArrayList<>();
+		return dequeueAll();
+	}
+
+	@Override
+	public void enqueue(E event, Time time) {
+		final long ticks=time.getTicks();
+		final int index=bucketIndex(ticks);
+		Bucket bucket=calendar[index];
+		if (bucket==null) {
+			bucket=new Bucket();
+			calendar[index]=bucket;
+		}
+		bucket.add(event,ticks);
+		if (size==0||ticks<currentTop-width) { // new event precedes the current calendar position
+			current=index;
+			currentTop=(Math.floorDiv(ticks,width)+1)*width;
+		}
+		size++;
+		if (min!=null&&ticks<min.getTicks()) min=null;
+	}
+
+	@Override
+	public Time getMin() {
+		if (isEmpty()) return Time.INFINITY;
+		if (min==null) min=new Time(findMin());
+		return min;
+	}
+
+	@Override
+	public Time getTime(E event) {
+		for (Bucket bucket : calendar) if (bucket!=null) {
+			final int pos=bucket.indexOf(event);
+			if (pos>=0) return new Time(bucket.times[pos]);
+		}
+		return null;
+	}
+
+	@Override
+	public boolean isEmpty() { return size==0; }
+
+	@Override
+	public int size() { return size; }
+
+	private int bucketIndex(long ticks) {
+		return (int) (Math.floorDiv(ticks,width)&mask);
+	}
+
+	/**
+	 * Moves the calendar to the bucket containing the minimum and returns its time stamp.
+	 * <p>
+	 * Note: The queue must not be empty.
+	 */
+	private long findMin() {
+		// scan one calendar year starting at the current position
+		for (int step=0; step<calendar.length; step++) {
+			final Bucket bucket=calendar[current];
+			if (bucket!=null&&bucket.size>0&&bucket.minTime()<currentTop) return bucket.minTime();
+			current=(current+1)&mask;
+			currentTop+=width;
+		}
+		// all events lie beyond one year: direct search for the minimum and jump there
+		long result=Long.MAX_VALUE;
+		for (Bucket bucket : calendar) if (bucket!=null&&bucket.size>0&&bucket.minTime()<result) result=bucket.minTime();
+		current=bucketIndex(result);
+		currentTop=(Math.floorDiv(result,width)+1)*width;
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E pollCurrent() {
+		findMin();
+		size--;
+		return (E) calendar[current].poll();
+	}
+
+}
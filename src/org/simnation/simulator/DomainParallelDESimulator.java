@@ -0,0 +1,245 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors:
+ * 	- Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import org.simnation.model.Domain;
+import org.simplesim.core.messaging.MessageForwardingStrategy;
+import org.simplesim.core.scheduling.EventQueue;
+import org.simplesim.core.scheduling.Time;
+import org.simplesim.model.Agent;
+import org.simplesim.model.BasicModelEntity;
+import org.simplesim.model.RoutingDomain;
+import org.simplesim.simulator.Simulator;
+
+/**
+ * Conservative parallel discrete event simulator partitioning the model by its regional domains.
+ * <p>
+ * All agents sharing the same domain index (see {@link Domain#getDomainIndex(org.simplesim.model.BasicModelEntity)})
+ * form a partition with its own local event queue. At each time stamp, all partitions with a due event are
+ * activated concurrently, each on its own worker. The simulator waits for all partitions to finish this time stamp
+ * before messages are forwarded and the next time stamp is determined. Thus, the same synchronization points are used
+ * as by the sequential simulator and by {@code AbstractBasicAgent.doEvent}: All events and messages of a time stamp are
+ * processed before simulation time advances.
+ * <p>
+ * Message forwarding is done sequentially in ascending domain order after each time stamp, so messages crossing
+ * domain borders (e.g. supplies sent by traders to all regional markets) are routed correctly and deterministically.
+ * <p>
+ * Within a partition, all {@link Batchable} agents due at the same time stamp are activated as one batch. Large
+ * batches may additionally be split across a fork-join pool (see {@link #setBatchPool(ForkJoinPool)}).
+ * <p>
+ * Note: Agents of different partitions must not alter each other's state directly during activation. Within the
+ * SimNation model this is ensured by exclusively communicating via messages.
+ */
+public final class DomainParallelDESimulator implements Simulator {
+
+	/** A partition contains all agents of one domain together with their local event queue */
+	private final class Partition implements Callable<List<Agent>> {
+
+		private final EventQueue<Agent> eventQueue=EventQueueFactory.createGlobalQueue();
+		private final List<Agent> batch=new ArrayList<>(); // batchable agents due at the current time stamp
+		private Time[] tones=new Time[0]; // times of next event of the batch
+		private Time time=Time.ZERO;
+
+		Time getMin() {
+			if (eventQueue.isEmpty()) return Time.INFINITY;
+			return eventQueue.getMin();
+		}
+
+		void add(Agent agent) {
+			final Time tone=agent.getTimeOfNextEvent();
+			if (tone!=null) eventQueue.enqueue(agent,tone);
+		}
+
+		void setTime(Time value) { time=value; }
+
+		/**
+		 * Activates all agents of this partition being due at the current time stamp.
+		 * <p>
+		 * All other agents are activated first, then all {@link Batchable} agents are activated together in one
+		 * batch. So batchable agents always see the state of the other agents after their activation, independent of
+		 * the order of the event queue.
+		 *
+		 * @return list of activated agents, needed for message forwarding
+		 */
+		@Override
+		public List<Agent> call() {
+			final List<Agent> current=eventQueue.dequeueAll();
+			batch.clear();
+			for (Agent agent : current) {
+				if (agent instanceof Batchable) batch.add(agent);
+				else {
+					final Time tone=agent.doEvent(time);
+					if (tone!=null) eventQueue.enqueue(agent,tone);
+				}
+			}
+			if (!batch.isEmpty()) activateBatch();
+			return current;
+		}
+
+		/**
+		 * Activates all batchable agents in one tight loop, optionally split across the batch pool.
+		 * <p>
+		 * The times of next event are collected in an array and enqueued afterwards in batch order, so the result
+		 * is deterministic even if the batch is processed concurrently.
+		 */
+		private void activateBatch() {
+			final int size=batch.size();
+			if (tones.length<size) tones=new Time[size];
+			if (batchPool==null||size<=BATCH_THRESHOLD) activateBatch(0,size);
+			else batchPool.invoke(new BatchTask(this,0,size));
+			for (int index=0; index<size; index++) {
+				if (tones[index]!=null) eventQueue.enqueue(batch.get(index),tones[index]);
+				tones[index]=null;
+			}
+		}
+
+		void activateBatch(int from, int to) {
+			for (int index=from; index<to; index++) tones[index]=batch.get(index).doEvent(time);
+		}
+
+	}
+
+	/** Fork-join task splitting a batch until it is small enough to be activated in a loop */
+	@SuppressWarnings("serial")
+	private static final class BatchTask extends RecursiveAction {
+
+		private final Partition partition;
+		private final int from, to;
+
+		BatchTask(Partition p, int start, int end) {
+			partition=p;
+			from=start;
+			to=end;
+		}
+
+		@Override
+		protected void compute() {
+			if (to-from<=BATCH_THRESHOLD) partition.activateBatch(from,to);
+			else {
+				final int mid=(from+to)>>>1;
+				invokeAll(new BatchTask(partition,from,mid),new BatchTask(partition,mid,to));
+			}
+		}
+
+	}
+
+	/** minimum number of agents per batch task */
+	private static final int BATCH_THRESHOLD=1024;
+
+	private final RoutingDomain root;
+	private final MessageForwardingStrategy forwarding;
+	private final int threads;
+	private final List<Partition> partitions=new ArrayList<>();
+	private ForkJoinPool batchPool=null; // pool for splitting batches, sequential batches if null
+	private Time simulationTime=Time.ZERO;
+
+	/**
+	 * Constructs a parallel simulator.
+	 *
+	 * @param rootDomain the model's root domain
+	 * @param fs         strategy to forward messages between agents
+	 * @param workers    number of worker threads, one per core if less than one
+	 */
+	public DomainParallelDESimulator(RoutingDomain rootDomain, MessageForwardingStrategy fs, int workers) {
+		root=rootDomain;
+		forwarding=fs;
+		threads=workers<1 ? Runtime.getRuntime().availableProcessors() : workers;
+	}
+
+	public DomainParallelDESimulator(RoutingDomain rootDomain, MessageForwardingStrategy fs) {
+		this(rootDomain,fs,0);
+	}
+
+	@Override
+	public void runSimulation(Time stop) {
+		initPartitions();
+		final ExecutorService executor=Executors.newFixedThreadPool(Math.max(1,Math.min(threads,partitions.size())));
+		try {
+			simulationTime=getMin();
+			final List<Partition> due=new ArrayList<>(partitions.size());
+			final List<Agent> activated=new ArrayList<>();
+			while (simulationTime.compareTo(stop)<0) {
+				// collect all partitions with events at the current time stamp
+				due.clear();
+				for (Partition partition : partitions) if (partition.getMin().equals(simulationTime)) {
+					partition.setTime(simulationTime);
+					due.add(partition);
+				}
+				// activate partitions concurrently and wait for all of them (synchronization barrier)
+				activated.clear();
+				if (due.size()==1) activated.addAll(due.get(0).call());
+				else for (Future<List<Agent>> result : executor.invokeAll(due)) activated.addAll(result.get());
+				// forward messages in deterministic order after all partitions have finished the time stamp
+				forwarding.forwardMessages(activated);
+				simulationTime=getMin();
+			}
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation run interrupted at "+simulationTime.toString(),exception);
+		} catch (ExecutionException exception) {
+			throw new IllegalStateException("Partition failed at "+simulationTime.toString(),exception.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public Time getSimulationTime() { return simulationTime; }
+
+	/**
+	 * Sets a pool to split the activation of large batches of {@link Batchable} agents.
+	 *
+	 * @param pool the pool, {@code null} to activate batches sequentially within their partition
+	 */
+	public void setBatchPool(ForkJoinPool pool) { batchPool=pool; }
+
+	/**
+	 * Returns the number of partitions, i.e. the number of domains with agents.
+	 *
+	 * @return number of partitions
+	 */
+	public int getPartitionCount() { return partitions.size(); }
+
+	/**
+	 * Assigns all agents of the model to the partition of their domain, ordered by domain index.
+	 */
+	private void initPartitions() {
+		final Map<Integer, Partition> map=new TreeMap<>();
+		for (Agent agent : root.listAllAgents(true)) {
+			final int index=Domain.getDomainIndex((BasicModelEntity) agent);
+			map.computeIfAbsent(index,key -> new Partition()).add(agent);
+		}
+		partitions.clear();
+		partitions.addAll(map.values());
+	}
+
+	private Time getMin() {
+		Time min=Time.INFINITY;
+		for (Partition partition : partitions) {
+			final Time time=partition.getMin();
+			if (time.compareTo(min)<0) min=time;
+		}
+		return min;
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors:
+ * 	- Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.simulator;
+
+import org.simnation.main.Tools;
+import org.simplesim.core.scheduling.EventQueue;
+import org.simplesim.core.scheduling.HeapEventQueue;
+import org.simplesim.core.scheduling.Time;
+
+/**
+ * Factory for the event queues used by the simulator (global queue) and by the agents (local queues).
+ * <p>
+ * The queue types have to be set at startup BEFORE the model is loaded, since every agent creates its local event
+ * queue within its constructor.
+ */
+public final class EventQueueFactory {
+
+	/** Available event queue implementations */
+	public enum Type {
+		/** binary heap, general purpose */
+		HEAP,
+		/** calendar queue with buckets on the daily grid of the model */
+		CALENDAR,
+		/** views on one index shared by all agents, only applicable to agent queues */
+		SHARED;
+	}
+
+	/**
+	 * Agents only hold a few events each, mostly within the next month. So a calendar of 16 buckets with two days
+	 * each is sufficient and keeps the memory footprint per agent small.
+	 */
+	private static final long AGENT_BUCKET_WIDTH=2*Time.TICKS_PER_DAY;
+	private static final int AGENT_BUCKET_COUNT=16;
+
+	private static Type agentQueueType=Type.HEAP;
+	private static Type globalQueueType=Type.HEAP;
+	private static SharedEventIndex sharedIndex=null;
+
+	private EventQueueFactory() {}
+
+	public static Type getAgentQueueType() { return agentQueueType; }
+
+	public static void setAgentQueueType(Type value) { agentQueueType=value; }
+
+	public static Type getGlobalQueueType() { return globalQueueType; }
+
+	public static void setGlobalQueueType(Type value) {
+		if (value==Type.SHARED) throw new IllegalArgumentException("A shared event index cannot be used as global queue!");
+		globalQueueType=value;
+	}
+
+	/**
+	 * Returns the index holding the events of all agents if agent queues are of type {@code SHARED}.
+	 *
+	 * @return the shared event index, created on first usage
+	 */
+	public static synchronized SharedEventIndex getSharedIndex() {
+		if (sharedIndex==null) sharedIndex=new SharedEventIndex();
+		return sharedIndex;
+	}
+
+	/**
+	 * Parses the name of a queue type, ignoring case.
+	 *
+	 * @param name name of the queue type, e.g. {@code calendar}
+	 * @return the queue type
+	 */
+	public static Type parseType(String name) {
+		return Tools.convertStringToEnum(name.toUpperCase(),Type.values());
+	}
+
+	/**
+	 * Creates a local event queue for an agent.
+	 *
+	 * @param <E> event type
+	 * @return a new event queue of the configured agent queue type
+	 */
+	public static <E> EventQueue<E> createAgentQueue() {
+		switch (agentQueueType) {
+		case CALENDAR: return new CalendarEventQueue<>(AGENT_BUCKET_WIDTH,AGENT_BUCKET_COUNT);
+		case SHARED: return getSharedIndex().createView();
+		default: return new HeapEventQueue<>();
+		}
+	}
+
+	/**
+	 * Creates the global event queue of a simulator.
+	 *
+	 * @param <E> event type, usually the agent type
+	 * @return a new event queue of the configured global queue type
+	 */
+	public static <E> EventQueue<E> createGlobalQueue() {
+		if (globalQueueType==Type.CALENDAR) return new CalendarEventQueue<>();
+		return new HeapEventQueue<>();
+	}
+
+}
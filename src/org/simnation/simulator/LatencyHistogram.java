@@ -0,0 +1,87 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.simulator;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with log-linear buckets in the manner of HdrHistogram.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} are counted exactly. Above, each power of two is divided into
+ * {@value #SUB_BUCKETS}/2 linear sub-buckets, so each recorded value is represented with a relative error of less than
+ * 1/16. All positive {@code long} values fit into a fixed array of counters, recording is an index computation and an
+ * increment.
+ * <p>
+ * Note: Not thread-safe, each thread has to record into a histogram of its own. Histograms can be merged by
+ * {@link #add(LatencyHistogram)}.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS=5;
+	private static final int SUB_BUCKETS=1<<SUB_BITS;
+	private static final int HALF_BUCKETS=SUB_BUCKETS>>1;
+	private static final int BUCKETS=(Long.SIZE-SUB_BITS)*HALF_BUCKETS+SUB_BUCKETS;
+
+	private final long[] counts=new long[BUCKETS];
+	private long count=0, sum=0, max=0;
+
+	public void record(long value) {
+		if (value<0) value=0;
+		counts[index(value)]++;
+		count++;
+		sum+=value;
+		if (value>max) max=value;
+	}
+
+	public void add(LatencyHistogram other) {
+		for (int index=0; index<BUCKETS; index++) counts[index]+=other.counts[index];
+		count+=other.count;
+		sum+=other.sum;
+		if (other.max>max) max=other.max;
+	}
+
+	public void reset() {
+		Arrays.fill(counts,0);
+		count=sum=max=0;
+	}
+
+	public long getCount() { return count; }
+
+	public long getMax() { return max; }
+
+	public double getMean() { return count==0 ? 0 : (double) sum/count; }
+
+	/**
+	 * Returns the value at a given percentile.
+	 *
+	 * @param percentile the percentile within [0;100]
+	 * @return the highest value equivalent to the bucket of the percentile, 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count==0) return 0;
+		final long rank=Math.max(1,(long) Math.ceil(percentile/100*count));
+		long total=0;
+		for (int index=0; index<BUCKETS; index++) {
+			total+=counts[index];
+			if (total>=rank) return Math.min(max,highestEquivalentValue(index));
+		}
+		return max;
+	}
+
+	private static int index(long value) {
+		if (value<SUB_BUCKETS) return (int) value;
+		final int shift=Long.SIZE-Long.numberOfLeadingZeros(value)-SUB_BITS; // value>>>shift is within [16;32)
+		return shift*HALF_BUCKETS+(int) (value>>>shift);
+	}
+
+	private static long highestEquivalentValue(int index) {
+		if (index<SUB_BUCKETS) return index;
+		final int shift=(index/HALF_BUCKETS)-1;
+		final long sub=(index%HALF_BUCKETS)+HALF_BUCKETS;
+		return ((sub+1)<<shift)-1;
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable
+ * and used JSimpleSim as technical backbone for concurrent discrete event simulation.
+ *
+ * This software is published as open source and licensed under GNU GPLv3.
+ *
+ * Contributors:
+ * 	- Rene Kuhlemann - development and initial implementation
+ *
+ */
+package org.simnation.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.simplesim.core.scheduling.EventQueue;
+import org.simplesim.core.scheduling.Time;
+
+/**
+ * Shared storage for the events of all agents, replacing an event queue object per agent.
+ * <p>
+ * All events are stored as entries in parallel primitive arrays (time stamp, event ordinal, link to the next entry).
+ * The entries of an agent form a linked list sorted by time, so the agent's next event is always found at the
+ * head of its list. Agents only hold a few events each, so sorted insertion is cheap. The arrays are organized in
+ * chunks that are never reallocated, freed entries are recycled via a free list.
+ * <p>
+ * Each agent accesses its events via a lightweight {@link View} implementing the {@code EventQueue} interface, so
+ * agent code does not need to be changed.
+ * <p>
+ * Note: Entry allocation and agent registration are synchronized, so agents of different partitions may be simulated
+ * concurrently. The events of one agent must only be accessed by one thread at a time.
+ */
+public final class SharedEventIndex {
+
+	private static final int CHUNK_BITS=14;
+	private static final int CHUNK_SIZE=1<<CHUNK_BITS;
+	private static final int CHUNK_MASK=CHUNK_SIZE-1;
+	private static final int NIL=-1;
+
+	/** chunk of event entries */
+	private static final class EntryChunk {
+		final long[] time=new long[CHUNK_SIZE];
+		final int[] ordinal=new int[CHUNK_SIZE];
+		final int[] next=new int[CHUNK_SIZE];
+	}
+
+	/** chunk of agent list heads */
+	private static final class AgentChunk {
+		final int[] head=new int[CHUNK_SIZE];
+		final int[] size=new int[CHUNK_SIZE];
+
+		AgentChunk() {
+			Arrays.fill(head,NIL);
+		}
+	}
+
+	/*
+	 * The chunk directories are replaced by a grown copy under the lock but read without it. They are volatile so a
+	 * reader seeing a new directory also sees the chunks copied into it. Reading an older directory is safe as well:
+	 * chunks are never moved or removed and an entry or agent id is only used after the lock handed it out, so its
+	 * chunk is already in any directory the reader may see.
+	 */
+	private volatile EntryChunk[] entries=new EntryChunk[16];
+	private volatile AgentChunk[] agents=new AgentChunk[16];
+	private int entryCount=0; // number of allocated entries (used or free)
+	private int agentCount=0; // number of registered agents
+	private int freeList=NIL; // head of the list of recycled entries
+	private int size=0; // number of events in the index
+
+	/**
+	 * Registers a new agent and returns the event queue view of this agent.
+	 *
+	 * @param <E> event type, has to be an enum
+	 * @return a new view representing the agent's event queue
+	 */
+	public synchronized <E> View<E> createView() {
+		final int id=agentCount++;
+		if ((id&CHUNK_MASK)==0) {
+			final int chunk=id>>>CHUNK_BITS;
+			if (chunk==agents.length) agents=Arrays.copyOf(agents,chunk<<1);
+			agents[chunk]=new AgentChunk();
+		}
+		return new View<>(id);
+	}
+
+	/**
+	 * Returns the number of events of all agents.
+	 *
+	 * @return overall number of events
+	 */
+	public synchronized int size() { return size; }
+
+	/**
+	 * Returns the number of registered agents.
+	 *
+	 * @return number of agents
+	 */
+	public synchronized int getAgentCount() { return agentCount; }
+
+	private synchronized int allocate() {
+		size++;
+		if (freeList!=NIL) {
+			final int result=freeList;
+			freeList=entry(result).next[result&CHUNK_MASK];
+			return result;
+		}
+		final int result=entryCount++;
+		if ((result&CHUNK_MASK)==0) {
+			final int chunk=result>>>CHUNK_BITS;
+			if (chunk==entries.length) entries=Arrays.copyOf(entries,chunk<<1);
+			entries[chunk]=new EntryChunk();
+		}
+		return result;
+	}
+
+	private synchronized void free(int index) {
+		size--;
+		entry(index).next[index&CHUNK_MASK]=freeList;
+		freeList=index;
+	}
+
+	private EntryChunk entry(int index) { return entries[index>>>CHUNK_BITS]; }
+
+	private AgentChunk agent(int id) { return agents[id>>>CHUNK_BITS]; }
+
+	/**
+	 * Event queue of a single agent backed by the shared index.
+	 *
+	 * @param <E> event type, has to be an enum
+	 */
+	public final class View<E> implements EventQueue<E> {
+
+		private final int id;
+		private E[] events=null; // enum constants to map ordinals back to events
+		private Time min=null; // cached time of the head entry
+
+		private View(int agentId) {
+			id=agentId;
+		}
+
+		@Override
+		public void clear() {
+			while (!isEmpty()) removeHead();
+		}
+
+		@Override
+		public E dequeue() {
+			if (isEmpty()) return null;
+			return removeHead();
+		}
+
+		@Override
+		public Time dequeue(E event) {
+			final int ord=((Enum<?>) event).ordinal();
+			final AgentChunk ac=agent(id);
+			int prev=NIL;
+			for (int index=ac.head[id&CHUNK_MASK]; index!=NIL; index=next(index)) {
+				final EntryChunk ec=entry(index);
+				if (ec.ordinal[index&CHUNK_MASK]==ord) {
+					final long time=ec.time[index&CHUNK_MASK];
+					if (prev==NIL) ac.head[id&CHUNK_MASK]=next(index);
+					else entry(prev).next[prev&CHUNK_MASK]=next(index);
+					ac.size[id&CHUNK_MASK]--;
+					free(index);
+					min=null;
+					return new Time(time);
+				}
+				prev=index;
+			}
+			return null;
+		}
+
+		@Override
+		public List<E> dequeueAll() {
+			final List<E> result=new ArrayList<>();
+			if (isEmpty()) return result;
+			final long time=headTime();
+			while (!isEmpty()&&headTime()==time) result.add(removeHead());
+			return result;
+		}
+
+		@Override
+		public List<E> dequeueAll(Time time) {
+			if (isEmpty()||headTime()!=time.getTicks()) return new ArrayList<>();
+			return dequeueAll();
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void enqueue(E event, Time time) {
+			if (events==null) events=(E[]) ((Enum<?>) event).getDeclaringClass().getEnumConstants();
+			final long ticks=time.getTicks();
+			final int index=allocate();
+			final EntryChunk ec=entry(index);
+			ec.time[index&CHUNK_MASK]=ticks;
+			ec.ordinal[index&CHUNK_MASK]=((Enum<?>) event).ordinal();
+			// sorted insertion, events with equal time stamps are kept in FIFO order
+			final AgentChunk ac=agent(id);
+			int prev=NIL;
+			int pos=ac.head[id&CHUNK_MASK];
+			while (pos!=NIL&&entry(pos).time[pos&CHUNK_MASK]<=ticks) {
+				prev=pos;
+				pos=next(pos);
+			}
+			ec.next[index&CHUNK_MASK]=pos;
+			if (prev==NIL) {
+				ac.head[id&CHUNK_MASK]=index;
+				min=null;
+			} else entry(prev).next[prev&CHUNK_MASK]=index;
+			ac.size[id&CHUNK_MASK]++;
+		}
+
+		@Override
+		public Time getMin() {
+			if (isEmpty()) return Time.INFINITY;
+			if (min==null) min=new Time(headTime());
+			return min;
+		}
+
+		@Override
+		public Time getTime(E event) {
+			final int ord=((Enum<?>) event).ordinal();
+			for (int index=agent(id).head[id&CHUNK_MASK]; index!=NIL; index=next(index))
+				if (entry(index).ordinal[index&CHUNK_MASK]==ord) return new Time(entry(index).time[index&CHUNK_MASK]);
+			return null;
+		}
+
+		@Override
+		public boolean isEmpty() { return agent(id).head[id&CHUNK_MASK]==NIL; }
+
+		@Override
+		public int size() { return agent(id).size[id&CHUNK_MASK]; }
+
+		/**
+		 * Returns the id of the agent within the shared index.
+		 *
+		 * @return the agent id
+		 */
+		public int getAgentId() { return id; }
+
+		private long headTime() {
+			final int index=agent(id).head[id&CHUNK_MASK];
+			return entry(index).time[index&CHUNK_MASK];
+		}
+
+		private int next(int index) { return entry(index).next[index&CHUNK_MASK]; }
+
+		private E removeHead() {
+			final AgentChunk ac=agent(id);
+			final int index=ac.head[id&CHUNK_MASK];
+			final EntryChunk ec=entry(index);
+			ac.head[id&CHUNK_MASK]=ec.next[index&CHUNK_MASK];
+			ac.size[id&CHUNK_MASK]--;
+			final E result=events[ec.ordinal[index&CHUNK_MASK]];
+			free(index);
+			min=null;
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Simulator implementations and scheduling tools tailored to the SimNation model.
+ *
+ */
+package org.simnation.simulator;
@@ -0,0 +1,48 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the vectorized bulk update of a {@link StatisticsBank} gives bitwise the same results as the scalar one.
+ */
+class VectorStatisticsKernelTest {
+
+	private static final int ROUNDS=100;
+
+	@Test
+	void vectorEqualsScalar() {
+		final Random random=new Random(42);
+		for (int length : new int[] { 0, 1, 3, 7, 16, 33, 255, 1024 }) {
+			final double[] avgVector=new double[length], varVector=new double[length], lastVector=new double[length];
+			final double[] avgScalar=new double[length], varScalar=new double[length], lastScalar=new double[length];
+			final double[] values=new double[length];
+			final StatisticsBank.Kernel kernel=new VectorStatisticsKernel();
+			for (int round=0; round<ROUNDS; round++) {
+				for (int index=0; index<length; index++) // about every tenth series without a new value
+					values[index]=random.nextInt(10)==0 ? Double.NaN : 100+20*random.nextGaussian();
+				kernel.update(avgVector,varVector,lastVector,values,length);
+				StatisticsBank.update(avgScalar,varScalar,lastScalar,values,0,length);
+				for (int index=0; index<length; index++) {
+					assertBitwiseEquals(avgScalar[index],avgVector[index],"average",length,index);
+					assertBitwiseEquals(varScalar[index],varVector[index],"variance",length,index);
+					assertBitwiseEquals(lastScalar[index],lastVector[index],"last value",length,index);
+				}
+			}
+		}
+	}
+
+	private static void assertBitwiseEquals(double expected, double actual, String column, int length, int index) {
+		assertEquals(Double.doubleToRawLongBits(expected),Double.doubleToRawLongBits(actual),
+				column+" differs at series "+index+" of "+length);
+	}
+
+}
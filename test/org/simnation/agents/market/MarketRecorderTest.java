@@ -0,0 +1,83 @@
+/*
+ * SimNation is a multi-agent model to simulate economic systems. It is scalable and used JSimpleSim as technical
+ * backbone for concurrent discrete event simulation. This software is published as open source and licensed under GNU
+ * GPLv3. Contributors: - Rene Kuhlemann - development and initial implementation
+ */
+package org.simnation.agents.market;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a {@link MarketHistory} reads back the rows of a {@link MarketRecorder} in order of recording.
+ */
+class MarketRecorderTest {
+
+	// more threads than cores, so recording threads are preempted between claiming and filling a row
+	private static final int THREADS=32;
+	private static final int TICKS=50;
+	private static final int ROWS_PER_TICK=500; // rows of each thread per tick, several blocks are filled concurrently
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void concurrentRecordingKeepsTickOrder() throws Exception {
+		final Path file=dir.resolve("market.rec");
+		final List<String> segments=List.of("Gold","Silver");
+		final CyclicBarrier barrier=new CyclicBarrier(THREADS);
+		final List<Throwable> errors=new ArrayList<>();
+		try (MarketRecorder recorder=new MarketRecorder(file,segments)) {
+			final List<Thread> threads=new ArrayList<>();
+			for (int index=0; index<THREADS; index++) {
+				final int region=index;
+				threads.add(new Thread(() -> {
+					try {
+						for (long tick=0; tick<TICKS; tick++) {
+							for (int row=0; row<ROWS_PER_TICK; row++)
+								recorder.record(tick,region,segments.get(row&1),1.0,row,1,1);
+							barrier.await(); // all rows of a tick are claimed before the next tick starts
+						}
+					} catch (Exception exception) {
+						synchronized (errors) {
+							errors.add(exception);
+						}
+					}
+				}));
+			}
+			for (Thread thread : threads) thread.start();
+			for (Thread thread : threads) thread.join();
+		}
+		assertTrue(errors.isEmpty(),errors::toString);
+		try (MarketHistory history=new MarketHistory(file)) {
+			assertEquals((long) THREADS*TICKS*ROWS_PER_TICK,history.size());
+			long last=0;
+			for (long row=0; row<history.size(); row++) {
+				final long tick=history.getTick(row);
+				assertTrue(tick>=last,"tick "+tick+" after "+last+" at row "+row);
+				last=tick;
+			}
+		}
+	}
+
+	@Test
+	void equalSegmentIsFound() throws Exception {
+		final Path file=dir.resolve("segment.rec");
+		try (MarketRecorder recorder=new MarketRecorder(file,List.of("Gold"))) {
+			recorder.record(0,0,new String("Gold"),1.0,1,1,1); // equal, but not the same instance
+		}
+		try (MarketHistory history=new MarketHistory(file)) {
+			assertEquals(1,history.size());
+			assertEquals("Gold",history.getSegment(0));
+		}
+	}
+
+}